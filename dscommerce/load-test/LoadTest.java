@@ -0,0 +1,83 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load client: each client sends its next request as soon as the previous one answers,
+ * cycling through the paths. Requests of the first warm-up seconds are not counted. Prints one line with
+ * the request count, throughput, p50, p99 and max latency, and the count of each status, -1 standing
+ * for requests that failed without a response.
+ * <p>
+ * Runs as a single source file on Java 21: java LoadTest.java BASE_URL CLIENTS SECONDS WARMUP PATHS,
+ * with PATHS separated by commas. See run.sh for the comparison between thread modes.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args[0];
+        int clients = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        int warmup = Integer.parseInt(args[3]);
+        String[] paths = args[4].split(",");
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        long measureFrom = System.nanoTime() + warmup * 1_000_000_000L;
+        long measureTo = measureFrom + seconds * 1_000_000_000L;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int first = c;
+                executor.submit(() -> {
+                    int next = first;
+                    while (System.nanoTime() < measureTo) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + paths[next++ % paths.length]))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        if (start >= measureFrom) {
+                            latencies.add(System.nanoTime() - start);
+                            statuses.computeIfAbsent(status, x -> new LongAdder()).increment();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (sorted.length == 0) {
+            System.out.println("requests=0");
+            return;
+        }
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        System.out.printf("requests=%d throughput=%.0f/s p50=%.1fms p99=%.1fms max=%.1fms statuses=%s%n",
+                sorted.length, sorted.length / (double) seconds, millis(sorted, 0.50), millis(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6, counts);
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * quantile) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+#
+# Compares throughput and p99 latency of the application with platform threads and with virtual threads
+# (VIRTUAL_THREADS_ENABLED) under the same closed-loop load. For each mode the application is started
+# with the test profile (H2 in memory), warmed up, loaded by LoadTest.java and stopped.
+#
+# Needs Java 21 on the PATH. From the dscommerce directory:
+#
+#   ./load-test/run.sh
+#
+# Settings, all optional, through the environment:
+#   CLIENTS   concurrent clients, 400 by default
+#   DURATION  measured seconds per mode, 20 by default
+#   WARMUP    seconds not measured at the start of each mode, 3 by default
+#   PATHS     request paths separated by commas, a mix of listings, findById, suggest and categories
+#   MODES     thread modes to run, "false true" by default
+#   APP       command starting the application, by default the jar built with ./mvnw package
+#   PORT      port of the application, 8080 by default
+#
+# Any other variable of application.properties, such as DB_POOL_SIZE or CONCURRENCY_ACQUIRE_TIMEOUT,
+# is passed on to the application. Client and server share the machine, so run it on a machine with
+# spare cores for figures that reflect the server alone.
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+CLIENTS=${CLIENTS:-400}
+DURATION=${DURATION:-20}
+WARMUP=${WARMUP:-3}
+PATHS=${PATHS:-/products?sort=imgUrl&size=12,/products/1,/products/suggest?prefix=pc,/categories,/products?page=1&sort=imgUrl}
+MODES=${MODES:-false true}
+PORT=${PORT:-8080}
+
+if [ -z "${APP:-}" ]; then
+    ./mvnw -q -DskipTests package
+    APP="java -jar $(ls target/dscommerce-*.jar | grep -v original | head -1)"
+fi
+
+for mode in $MODES; do
+    log=$(mktemp -t dscommerce-load.XXXXXX)
+    VIRTUAL_THREADS_ENABLED=$mode $APP --server.port="$PORT" --spring.jpa.show-sql=false \
+        --logging.level.root=WARN > "$log" 2>&1 &
+    app=$!
+    trap 'kill $app 2>/dev/null || true' EXIT
+
+    for _ in $(seq 1 120); do
+        curl -s -o /dev/null "http://localhost:$PORT/categories" && break
+        sleep 1
+    done
+
+    echo -n "virtual threads $mode: "
+    java load-test/LoadTest.java "http://localhost:$PORT" "$CLIENTS" "$DURATION" "$WARMUP" "$PATHS"
+
+    kill $app
+    wait $app 2>/dev/null || true
+    rm -f "$log"
+done
@@ -1,10 +1,10 @@
 package com.devsuperior.dscommerce.config;
 
 import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationConverter;
+import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationFailureHandler;
 import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationProvider;
 import com.devsuperior.dscommerce.config.customgrant.CustomUserAuthorities;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
+import com.devsuperior.dscommerce.util.TokenBucketRateLimiter;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,17 +14,15 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.OAuth2Token;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationConsentService;
-import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
-import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
 import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
@@ -37,11 +35,12 @@ import org.springframework.security.oauth2.server.authorization.settings.OAuth2T
 import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
 import org.springframework.security.oauth2.server.authorization.token.*;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.preauth.AbstractPreAuthenticatedProcessingFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.StringUtils;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
@@ -58,9 +57,60 @@ public class AuthorizationServerConfig {
 	@Value("${security.jwt.duration}")
 	private Integer jwtDurationSeconds;
 
+	@Value("${security.jwt.refresh-duration}")
+	private Integer refreshTokenDurationSeconds;
+
+	@Value("${security.authorization.max-size}")
+	private Integer authorizationMaxSize;
+
+	@Value("${security.jwt.cache.max-size}")
+	private Integer jwtCacheMaxSize;
+
+	@Value("${security.jwt.key-ring}")
+	private String jwtKeyRingPath;
+
+	@Value("${security.jwt.signing-key-id}")
+	private String jwtSigningKeyId;
+
+	@Value("${security.jwt.algorithm}")
+	private String jwtAlgorithm;
+
+	@Value("${security.password.bcrypt-strength}")
+	private Integer bcryptStrength;
+
+	@Value("${security.password.threads}")
+	private Integer passwordThreads;
+
+	@Value("${security.password.queue-capacity}")
+	private Integer passwordQueueCapacity;
+
+	@Value("${security.password.timeout}")
+	private Integer passwordTimeoutMillis;
+
+	@Value("${security.rate-limit.enabled}")
+	private boolean rateLimitEnabled;
+
+	@Value("${security.rate-limit.max-keys}")
+	private Integer rateLimitMaxKeys;
+
+	@Value("${security.rate-limit.address.capacity}")
+	private Integer addressRateLimitCapacity;
+
+	@Value("${security.rate-limit.address.interval}")
+	private Integer addressRateLimitIntervalMillis;
+
+	@Value("${security.rate-limit.username.capacity}")
+	private Integer usernameRateLimitCapacity;
+
+	@Value("${security.rate-limit.username.interval}")
+	private Integer usernameRateLimitIntervalMillis;
+
 	@Autowired
 	private UserDetailsService userDetailsService;
 
+	@Autowired
+	private UserDetailsPasswordService userDetailsPasswordService;
+
 	@Bean
 	@Order(2)
 	public SecurityFilterChain asSecurityFilterChain(HttpSecurity http) throws Exception {
@@ -71,17 +121,26 @@ public class AuthorizationServerConfig {
 		http.getConfigurer(OAuth2AuthorizationServerConfigurer.class)
 			.tokenEndpoint(tokenEndpoint -> tokenEndpoint
 				.accessTokenRequestConverter(new CustomPasswordAuthenticationConverter())
-				.authenticationProvider(new CustomPasswordAuthenticationProvider(authorizationService(), tokenGenerator(), userDetailsService, passwordEncoder())));
+				.authenticationProvider(new CustomPasswordAuthenticationProvider(authorizationService(), tokenGenerator(),
+					userDetailsService, passwordHashingPool().getPasswordEncoder(), userDetailsPasswordService))
+				.errorResponseHandler(new CustomPasswordAuthenticationFailureHandler()));
 
 		http.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
 		// @formatter:on
 
+		if (rateLimitEnabled) {
+			// Ahead of client authentication, which hashes the client secret
+			RequestMatcher tokenEndpoint = new AntPathRequestMatcher(authorizationServerSettings().getTokenEndpoint(), "POST");
+			http.addFilterBefore(new TokenEndpointRateLimitFilter(tokenEndpointRateLimiter(), tokenEndpoint),
+					AbstractPreAuthenticatedProcessingFilter.class);
+		}
+
 		return http.build();
 	}
 
 	@Bean
-	public OAuth2AuthorizationService authorizationService() {
-		return new InMemoryOAuth2AuthorizationService();
+	public BoundedOAuth2AuthorizationService authorizationService() {
+		return new BoundedOAuth2AuthorizationService(authorizationMaxSize, Duration.ofSeconds(jwtDurationSeconds));
 	}
 
 	@Bean
@@ -91,7 +150,24 @@ public class AuthorizationServerConfig {
 
 	@Bean
 	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+		return new BCryptPasswordEncoder(bcryptStrength);
+	}
+
+	@Bean
+	public PasswordHashingPool passwordHashingPool() {
+		return new PasswordHashingPool(passwordEncoder(), passwordThreads, passwordQueueCapacity,
+				Duration.ofMillis(passwordTimeoutMillis));
+	}
+
+	@Bean
+	public TokenEndpointRateLimiter tokenEndpointRateLimiter() {
+		// @formatter:off
+		return new TokenEndpointRateLimiter(
+			new TokenBucketRateLimiter<>("address", addressRateLimitCapacity,
+				Duration.ofMillis(addressRateLimitIntervalMillis), rateLimitMaxKeys),
+			new TokenBucketRateLimiter<>("username", usernameRateLimitCapacity,
+				Duration.ofMillis(usernameRateLimitIntervalMillis), rateLimitMaxKeys));
+		// @formatter:on
 	}
 
 	@Bean
@@ -104,6 +180,7 @@ public class AuthorizationServerConfig {
 			.scope("read")
 			.scope("write")
 			.authorizationGrantType(new AuthorizationGrantType("password"))
+			.authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
 			.tokenSettings(tokenSettings())
 			.clientSettings(clientSettings())
 			.build();
@@ -118,6 +195,8 @@ public class AuthorizationServerConfig {
 		return TokenSettings.builder()
 			.accessTokenFormat(OAuth2TokenFormat.SELF_CONTAINED)
 			.accessTokenTimeToLive(Duration.ofSeconds(jwtDurationSeconds))
+			.refreshTokenTimeToLive(Duration.ofSeconds(refreshTokenDurationSeconds))
+			.reuseRefreshTokens(false)
 			.build();
 		// @formatter:on
 	}
@@ -134,11 +213,11 @@ public class AuthorizationServerConfig {
 
 	@Bean
 	public OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator() {
-		NimbusJwtEncoder jwtEncoder = new NimbusJwtEncoder(jwkSource());
-		JwtGenerator jwtGenerator = new JwtGenerator(jwtEncoder);
+		JwtGenerator jwtGenerator = new JwtGenerator(jwtKeyRing().jwtEncoder());
 		jwtGenerator.setJwtCustomizer(tokenCustomizer());
 		OAuth2AccessTokenGenerator accessTokenGenerator = new OAuth2AccessTokenGenerator();
-		return new DelegatingOAuth2TokenGenerator(jwtGenerator, accessTokenGenerator);
+		OAuth2RefreshTokenGenerator refreshTokenGenerator = new OAuth2RefreshTokenGenerator();
+		return new DelegatingOAuth2TokenGenerator(jwtGenerator, accessTokenGenerator, refreshTokenGenerator);
 	}
 
 	@Bean
@@ -153,38 +232,33 @@ public class AuthorizationServerConfig {
 					.claim("authorities", authorities)
 					.claim("username", user.getUsername());
 				// @formatter:on
+				if (user.getUserId() != null) {
+					context.getClaims().claim("user_id", user.getUserId());
+				}
+				if (user.getName() != null) {
+					context.getClaims().claim("name", user.getName());
+				}
 			}
 		};
 	}
 
 	@Bean
-	public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource) {
-		return OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource);
+	public CachingJwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource) {
+		JwtDecoder jwtDecoder = OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource);
+		return new CachingJwtDecoder(jwtDecoder, jwtKeyRing()::containsKeyId, jwtCacheMaxSize,
+				Duration.ofSeconds(jwtDurationSeconds));
 	}
 
 	@Bean
 	public JWKSource<SecurityContext> jwkSource() {
-		RSAKey rsaKey = generateRsa();
-		JWKSet jwkSet = new JWKSet(rsaKey);
-		return (jwkSelector, securityContext) -> jwkSelector.select(jwkSet);
+		return jwtKeyRing().jwkSource();
 	}
 
-	private static RSAKey generateRsa() {
-		KeyPair keyPair = generateRsaKey();
-		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-		RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-		return new RSAKey.Builder(publicKey).privateKey(privateKey).keyID(UUID.randomUUID().toString()).build();
-	}
-
-	private static KeyPair generateRsaKey() {
-		KeyPair keyPair;
-		try {
-			KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-			keyPairGenerator.initialize(2048);
-			keyPair = keyPairGenerator.generateKeyPair();
-		} catch (Exception ex) {
-			throw new IllegalStateException(ex);
+	@Bean
+	public JwtKeyRing jwtKeyRing() {
+		if (StringUtils.hasText(jwtKeyRingPath)) {
+			return JwtKeyRing.load(Path.of(jwtKeyRingPath), jwtSigningKeyId);
 		}
-		return keyPair;
+		return JwtKeyRing.generate(jwtAlgorithm);
 	}
 }
@@ -0,0 +1,164 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.util.BoundedCache;
+import com.devsuperior.dscommerce.util.MetricsSource;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate second-level cache kept in {@link BoundedCache}s, one per region, each with its own size and
+ * time to live. Every entity, collection and query region must be declared with {@link #region} before the
+ * session factory starts; an undeclared region fails startup rather than growing without a policy.
+ * <p>
+ * Update timestamps are never evicted: a missing timestamp would make a stale cached query look fresh.
+ */
+public class BoundedCacheRegionFactory extends RegionFactoryTemplate implements MetricsSource {
+
+    private final Map<String, BoundedCache<Object, Object>> regions = new LinkedHashMap<>();
+
+    public BoundedCacheRegionFactory region(String name, int maxSize, Duration ttl) {
+        regions.put(name, new BoundedCache<>(name, maxSize, ttl));
+        return this;
+    }
+
+    /**
+     * Declares the region Hibernate keeps cacheable query results in.
+     */
+    public BoundedCacheRegionFactory queryResults(int maxSize, Duration ttl) {
+        return region(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, maxSize, ttl);
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+            DomainDataRegionBuildingContext buildingContext) {
+        return new BoundedCacheStorageAccess(cacheFor(regionConfig.getRegionName()));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        return new BoundedCacheStorageAccess(cacheFor(regionName));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        return new TimestampsStorageAccess();
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(BoundedCache::clear);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "hibernate.cache";
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        regions.forEach((name, cache) ->
+                cache.getMetrics().forEach((key, value) -> metrics.put(name + "." + key, value)));
+        return metrics;
+    }
+
+    private BoundedCache<Object, Object> cacheFor(String regionName) {
+        BoundedCache<Object, Object> cache = regions.get(regionName);
+        if (cache == null) {
+            throw new IllegalStateException("No cache policy declared for Hibernate region " + regionName);
+        }
+        return cache;
+    }
+
+    private static class BoundedCacheStorageAccess implements DomainDataStorageAccess {
+
+        private final BoundedCache<Object, Object> cache;
+
+        BoundedCacheStorageAccess(BoundedCache<Object, Object> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return cache.get(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            cache.put(key, value);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return cache.containsKey(key);
+        }
+
+        @Override
+        public void evictData() {
+            cache.clear();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            cache.remove(key);
+        }
+
+        @Override
+        public void release() {
+            cache.clear();
+        }
+    }
+
+    private static class TimestampsStorageAccess implements StorageAccess {
+
+        private final Map<Object, Object> timestamps = new ConcurrentHashMap<>();
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return timestamps.get(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            timestamps.put(key, value);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return timestamps.containsKey(key);
+        }
+
+        @Override
+        public void evictData() {
+            timestamps.clear();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            timestamps.remove(key);
+        }
+
+        @Override
+        public void release() {
+            timestamps.clear();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.util.BoundedCache;
+import com.devsuperior.dscommerce.util.MetricsSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authorization store that only keeps live tokens: an authorization expires together with its
+ * last token and the store never holds more than a fixed number of them, dropping the least
+ * recently used first. Lookups by token value go through an index instead of a scan.
+ */
+public class BoundedOAuth2AuthorizationService implements OAuth2AuthorizationService, MetricsSource {
+
+    private static final OAuth2TokenType STATE = new OAuth2TokenType(OAuth2ParameterNames.STATE);
+    private static final OAuth2TokenType CODE = new OAuth2TokenType(OAuth2ParameterNames.CODE);
+
+    private final BoundedCache<String, OAuth2Authorization> authorizations;
+    private final Map<String, String> tokenIndex = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final Duration ttl;
+
+    public BoundedOAuth2AuthorizationService(int maxSize, Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    public BoundedOAuth2AuthorizationService(int maxSize, Duration ttl, Clock clock) {
+        this.authorizations = new BoundedCache<>("security.authorizations", maxSize, ttl, clock);
+        this.authorizations.setEvictionListener((id, authorization) -> unindex(authorization));
+        this.clock = clock;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        Instant expiresAt = expiresAt(authorization);
+        if (!expiresAt.isAfter(clock.instant())) {
+            remove(authorization);
+            return;
+        }
+        OAuth2Authorization previous = authorizations.put(authorization.getId(), authorization, expiresAt);
+        if (previous != null) {
+            unindex(previous);
+        }
+        for (String value : tokenValues(authorization)) {
+            tokenIndex.put(value, authorization.getId());
+        }
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        OAuth2Authorization removed = authorizations.remove(authorization.getId());
+        unindex(authorization);
+        if (removed != null) {
+            unindex(removed);
+        }
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        return authorizations.get(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        Assert.hasText(token, "token cannot be empty");
+        String id = tokenIndex.get(token);
+        if (id == null) {
+            return null;
+        }
+        OAuth2Authorization authorization = authorizations.get(id);
+        return (authorization != null && matches(authorization, token, tokenType)) ? authorization : null;
+    }
+
+    @Scheduled(fixedDelayString = "${security.authorization.sweep-interval:60000}")
+    public int sweep() {
+        return authorizations.sweep();
+    }
+
+    public int size() {
+        return authorizations.size();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return authorizations.getMetricsName();
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = authorizations.getMetrics();
+        metrics.put("indexedTokens", tokenIndex.size());
+        return metrics;
+    }
+
+    private Instant expiresAt(OAuth2Authorization authorization) {
+        Instant result = null;
+        for (OAuth2Authorization.Token<?> token : tokens(authorization)) {
+            Instant tokenExpiresAt = token.getToken().getExpiresAt();
+            if (tokenExpiresAt == null) {
+                tokenExpiresAt = clock.instant().plus(ttl);
+            }
+            if (result == null || tokenExpiresAt.isAfter(result)) {
+                result = tokenExpiresAt;
+            }
+        }
+        return (result != null) ? result : clock.instant().plus(ttl);
+    }
+
+    private void unindex(OAuth2Authorization authorization) {
+        for (String value : tokenValues(authorization)) {
+            tokenIndex.remove(value, authorization.getId());
+        }
+    }
+
+    private static List<OAuth2Authorization.Token<?>> tokens(OAuth2Authorization authorization) {
+        List<OAuth2Authorization.Token<?>> result = new ArrayList<>(3);
+        addIfPresent(result, authorization.getAccessToken());
+        addIfPresent(result, authorization.getRefreshToken());
+        addIfPresent(result, authorization.getToken(OAuth2AuthorizationCode.class));
+        return result;
+    }
+
+    private static List<String> tokenValues(OAuth2Authorization authorization) {
+        List<String> result = new ArrayList<>(4);
+        for (OAuth2Authorization.Token<?> token : tokens(authorization)) {
+            result.add(token.getToken().getTokenValue());
+        }
+        String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        if (state != null) {
+            result.add(state);
+        }
+        return result;
+    }
+
+    private static void addIfPresent(List<OAuth2Authorization.Token<?>> list, OAuth2Authorization.Token<? extends OAuth2Token> token) {
+        if (token != null) {
+            list.add(token);
+        }
+    }
+
+    private static boolean matches(OAuth2Authorization authorization, String token, OAuth2TokenType tokenType) {
+        if (tokenType == null) {
+            return matchesToken(authorization.getAccessToken(), token)
+                    || matchesToken(authorization.getRefreshToken(), token)
+                    || matchesToken(authorization.getToken(OAuth2AuthorizationCode.class), token)
+                    || token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE));
+        }
+        if (OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)) {
+            return matchesToken(authorization.getToken(OAuth2AccessToken.class), token);
+        }
+        if (OAuth2TokenType.REFRESH_TOKEN.equals(tokenType)) {
+            return matchesToken(authorization.getToken(OAuth2RefreshToken.class), token);
+        }
+        if (CODE.equals(tokenType)) {
+            return matchesToken(authorization.getToken(OAuth2AuthorizationCode.class), token);
+        }
+        if (STATE.equals(tokenType)) {
+            return token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE));
+        }
+        return false;
+    }
+
+    private static boolean matchesToken(OAuth2Authorization.Token<? extends OAuth2Token> authorizationToken, String token) {
+        return authorizationToken != null && authorizationToken.getToken().getTokenValue().equals(token);
+    }
+}
@@ -0,0 +1,109 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.util.BoundedCache;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${cache.product.max-size}")
+    private Integer productMaxSize;
+
+    @Value("${cache.product.ttl}")
+    private Integer productTtlSeconds;
+
+    @Value("${cache.user-details.max-size}")
+    private Integer userDetailsMaxSize;
+
+    @Value("${cache.user-details.ttl}")
+    private Integer userDetailsTtlSeconds;
+
+    @Value("${cache.hibernate.category.max-size}")
+    private Integer categoryRegionMaxSize;
+
+    @Value("${cache.hibernate.category.ttl}")
+    private Integer categoryRegionTtlSeconds;
+
+    @Value("${cache.hibernate.role.max-size}")
+    private Integer roleRegionMaxSize;
+
+    @Value("${cache.hibernate.role.ttl}")
+    private Integer roleRegionTtlSeconds;
+
+    @Value("${cache.hibernate.product.max-size}")
+    private Integer productRegionMaxSize;
+
+    @Value("${cache.hibernate.product.ttl}")
+    private Integer productRegionTtlSeconds;
+
+    @Value("${cache.hibernate.query.max-size}")
+    private Integer queryRegionMaxSize;
+
+    @Value("${cache.hibernate.query.ttl}")
+    private Integer queryRegionTtlSeconds;
+
+    @Value("${cache.http.max-age}")
+    private Integer httpMaxAgeSeconds;
+
+    @Value("${cache.http.s-max-age}")
+    private Integer httpSharedMaxAgeSeconds;
+
+    @Value("${cache.http.stale-while-revalidate}")
+    private Integer httpStaleWhileRevalidateSeconds;
+
+    @Bean
+    public BoundedCache<Long, ProductDTO> productCache() {
+        return new BoundedCache<>("cache.product", productMaxSize, Duration.ofSeconds(productTtlSeconds));
+    }
+
+    @Bean
+    public BoundedCache<String, UserDetails> userDetailsCache() {
+        return new BoundedCache<>("cache.user-details", userDetailsMaxSize, Duration.ofSeconds(userDetailsTtlSeconds));
+    }
+
+    /**
+     * For catalog responses: browsers revalidate with the ETag, shared caches such as a CDN may serve a copy
+     * for s-maxage and keep serving it while they revalidate in the background. Tags are per node, and a
+     * node serves writes made on another one after its next index sync, so a shared copy may lag behind
+     * the database by s-maxage plus search.index.sync-interval.
+     */
+    @Bean
+    public CacheControl catalogCacheControl() {
+        return CacheControl.maxAge(Duration.ofSeconds(httpMaxAgeSeconds))
+                .sMaxAge(Duration.ofSeconds(httpSharedMaxAgeSeconds))
+                .staleWhileRevalidate(Duration.ofSeconds(httpStaleWhileRevalidateSeconds))
+                .cachePublic();
+    }
+
+    @Bean
+    public BoundedCacheRegionFactory hibernateCacheRegionFactory() {
+        // @formatter:off
+        return new BoundedCacheRegionFactory()
+                .region("category", categoryRegionMaxSize, Duration.ofSeconds(categoryRegionTtlSeconds))
+                .region("role", roleRegionMaxSize, Duration.ofSeconds(roleRegionTtlSeconds))
+                .region("product", productRegionMaxSize, Duration.ofSeconds(productRegionTtlSeconds))
+                .region("product.categories", productRegionMaxSize, Duration.ofSeconds(productRegionTtlSeconds))
+                .region("user.roles", userDetailsMaxSize, Duration.ofSeconds(roleRegionTtlSeconds))
+                .queryResults(queryRegionMaxSize, Duration.ofSeconds(queryRegionTtlSeconds));
+        // @formatter:on
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, hibernateCacheRegionFactory());
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+        };
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.util.BoundedCache;
+import com.devsuperior.dscommerce.util.MetricsSource;
+import org.springframework.security.oauth2.jwt.JoseHeaderNames;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Remembers tokens that already passed signature and claim validation, keyed by their SHA-256 digest,
+ * so a client repeating the same bearer token is verified once. An entry never outlives the token's exp,
+ * and is only served while the key named by its kid is still in the key ring, so a token signed by a key
+ * rotated out is verified again, and rejected, on its next use.
+ */
+public class CachingJwtDecoder implements JwtDecoder, MetricsSource {
+
+    private final JwtDecoder delegate;
+    private final Predicate<String> keyIdInRing;
+    private final BoundedCache<String, Jwt> cache;
+    private final Clock clock;
+
+    public CachingJwtDecoder(JwtDecoder delegate, Predicate<String> keyIdInRing, int maxSize, Duration ttl) {
+        this(delegate, keyIdInRing, maxSize, ttl, Clock.systemUTC());
+    }
+
+    public CachingJwtDecoder(JwtDecoder delegate, Predicate<String> keyIdInRing, int maxSize, Duration ttl,
+                             Clock clock) {
+        this.delegate = delegate;
+        this.keyIdInRing = keyIdInRing;
+        this.cache = new BoundedCache<>("security.jwt.cache", maxSize, ttl, clock);
+        this.clock = clock;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = digest(token);
+        Jwt jwt = cache.get(key);
+        if (jwt != null) {
+            if (signedByKeyInRing(jwt)) {
+                return jwt;
+            }
+            cache.remove(key);
+        }
+        jwt = delegate.decode(token);
+        Instant now = clock.instant();
+        Instant expiresAt = jwt.getExpiresAt();
+        boolean active = jwt.getNotBefore() == null || !jwt.getNotBefore().isAfter(now);
+        if (active && expiresAt != null && expiresAt.isAfter(now) && signedByKeyInRing(jwt)) {
+            cache.put(key, jwt, expiresAt);
+        }
+        return jwt;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return cache.getMetricsName();
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        return cache.getMetrics();
+    }
+
+    private boolean signedByKeyInRing(Jwt jwt) {
+        Object keyId = jwt.getHeaders().get(JoseHeaderNames.KID);
+        return keyId instanceof String id && keyIdInRing.test(id);
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.devsuperior.dscommerce.config;
+
+import java.sql.SQLTransientConnectionException;
+
+public class DatabaseBusyException extends SQLTransientConnectionException {
+
+    public DatabaseBusyException(String msg) {
+        super(msg);
+    }
+
+}
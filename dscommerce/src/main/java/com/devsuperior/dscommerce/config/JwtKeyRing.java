@@ -0,0 +1,144 @@
+package com.devsuperior.dscommerce.config;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.impl.ECDSA;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The keys tokens are signed and verified with. Every key in the ring verifies, one of them signs, and each
+ * token names its key in the kid header, so nodes sharing the same ring file accept each other's tokens.
+ * To rotate: add the new key to the ring on every node, then point security.jwt.signing-key-id at it, and
+ * drop the old key once the tokens it signed have expired.
+ */
+public class JwtKeyRing {
+
+    private final JWKSet jwkSet;
+    private final JWK signingKey;
+    private final SignatureAlgorithm signingAlgorithm;
+
+    public JwtKeyRing(JWKSet jwkSet, String signingKeyId) {
+        List<JWK> keys = jwkSet.getKeys();
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("JWT key ring is empty");
+        }
+        JWK key = StringUtils.hasText(signingKeyId) ? jwkSet.getKeyByKeyId(signingKeyId) : keys.get(0);
+        if (key == null || !key.isPrivate()) {
+            throw new IllegalArgumentException("JWT signing key not found or has no private part: " + signingKeyId);
+        }
+        if (key.getKeyID() == null) {
+            throw new IllegalArgumentException("JWT signing key must have a kid");
+        }
+        this.jwkSet = jwkSet;
+        this.signingKey = key;
+        this.signingAlgorithm = SignatureAlgorithm.from(algorithmOf(key).getName());
+        if (signingAlgorithm == null) {
+            throw new IllegalArgumentException("Unsupported JWT signing algorithm: " + algorithmOf(key));
+        }
+    }
+
+    public static JwtKeyRing load(Path path, String signingKeyId) {
+        try {
+            return new JwtKeyRing(JWKSet.load(path.toFile()), signingKeyId);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load JWT key ring from " + path, e);
+        }
+    }
+
+    /**
+     * A ring with one new key, for single node setups where tokens need not survive a restart.
+     */
+    public static JwtKeyRing generate(String algorithm) {
+        JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(algorithm);
+        try {
+            JWK key;
+            if (JWSAlgorithm.Family.EC.contains(jwsAlgorithm)) {
+                Curve curve = Curve.forJWSAlgorithm(jwsAlgorithm).iterator().next();
+                key = new ECKeyGenerator(curve).algorithm(jwsAlgorithm).keyUse(KeyUse.SIGNATURE)
+                        .keyID(UUID.randomUUID().toString()).generate();
+            } else if (JWSAlgorithm.Family.RSA.contains(jwsAlgorithm)) {
+                key = new RSAKeyGenerator(2048).algorithm(jwsAlgorithm).keyUse(KeyUse.SIGNATURE)
+                        .keyID(UUID.randomUUID().toString()).generate();
+            } else {
+                throw new IllegalArgumentException("Unsupported JWT signing algorithm: " + algorithm);
+            }
+            return new JwtKeyRing(new JWKSet(key), key.getKeyID());
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public JWKSource<SecurityContext> jwkSource() {
+        return (jwkSelector, securityContext) -> jwkSelector.select(jwkSet);
+    }
+
+    /**
+     * Encoder that always signs with the ring's signing key, whatever algorithm the caller asked for.
+     */
+    public JwtEncoder jwtEncoder() {
+        NimbusJwtEncoder delegate = new NimbusJwtEncoder(jwkSource());
+        return parameters -> encode(delegate, parameters);
+    }
+
+    public String getSigningKeyId() {
+        return signingKey.getKeyID();
+    }
+
+    public SignatureAlgorithm getSigningAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    public boolean containsKeyId(String keyId) {
+        return jwkSet.getKeyByKeyId(keyId) != null;
+    }
+
+    public List<String> getKeyIds() {
+        return jwkSet.getKeys().stream().map(JWK::getKeyID).toList();
+    }
+
+    private Jwt encode(NimbusJwtEncoder delegate, JwtEncoderParameters parameters) throws JwtEncodingException {
+        JwsHeader.Builder header = (parameters.getJwsHeader() != null)
+                ? JwsHeader.from(parameters.getJwsHeader())
+                : JwsHeader.with(signingAlgorithm);
+        header.algorithm(signingAlgorithm).keyId(signingKey.getKeyID());
+        return delegate.encode(JwtEncoderParameters.from(header.build(), parameters.getClaims()));
+    }
+
+    private static JWSAlgorithm algorithmOf(JWK key) {
+        if (key.getAlgorithm() != null) {
+            return JWSAlgorithm.parse(key.getAlgorithm().getName());
+        }
+        if (key instanceof ECKey ecKey) {
+            try {
+                return ECDSA.resolveAlgorithm(ecKey.getCurve());
+            } catch (JOSEException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        if (key instanceof RSAKey) {
+            return JWSAlgorithm.RS256;
+        }
+        throw new IllegalArgumentException("Unsupported JWT key type: " + key.getKeyType());
+    }
+}
@@ -0,0 +1,9 @@
+package com.devsuperior.dscommerce.config;
+
+public class PasswordEncoderBusyException extends RuntimeException {
+
+    public PasswordEncoderBusyException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.util.MetricsSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the hashing of another encoder on a small dedicated pool with a bounded queue, so that a login
+ * burst waits for, or is turned away from, a fixed number of hashing threads instead of occupying every
+ * request thread. When the queue is full, or a hash waits longer than the timeout,
+ * {@link PasswordEncoderBusyException} is thrown right away.
+ * <p>
+ * The pool hands out its encoder through {@link #getPasswordEncoder()} rather than being one, so it does
+ * not compete with the application's PasswordEncoder bean.
+ */
+public class PasswordHashingPool implements MetricsSource {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final PasswordEncoder passwordEncoder = new PasswordEncoder() {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return execute(() -> delegate.encode(rawPassword));
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return execute(() -> delegate.matches(rawPassword, encodedPassword));
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return delegate.upgradeEncoding(encodedPassword);
+        }
+    };
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHashingPool(PasswordEncoder delegate, int threads, int queueCapacity, Duration timeout) {
+        this.delegate = delegate;
+        this.timeoutMillis = timeout.toMillis();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-encoder-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public PasswordEncoder getPasswordEncoder() {
+        return passwordEncoder;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "security.password-encoder";
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        long count = hashes.sum();
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("hashes", count);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("hashMeanMillis", (count == 0) ? 0.0 : hashNanos.sum() / 1e6 / count);
+        metrics.put("hashMaxMillis", maxHashNanos.get() / 1e6);
+        return metrics;
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordEncoderBusyException("Password encoder queue is full");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordEncoderBusyException("Password encoder timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordEncoderBusyException("Interrupted while waiting for password encoder");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> T timed(Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            hashes.increment();
+            hashNanos.add(elapsed);
+            maxHashNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.devsuperior.dscommerce.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers token requests over the rate limit with 429 and Retry-After. Runs ahead of client
+ * authentication, so a rejected request costs neither a client secret nor a password hash. The
+ * address is the peer's, which behind a reverse proxy is the proxy's, unless the deployment turns on
+ * server.forward-headers-strategy so that the client's is resolved from X-Forwarded-For.
+ */
+public class TokenEndpointRateLimitFilter extends OncePerRequestFilter {
+
+    private final TokenEndpointRateLimiter rateLimiter;
+    private final RequestMatcher tokenEndpointMatcher;
+    private final HttpMessageConverter<OAuth2Error> errorConverter = new OAuth2ErrorHttpMessageConverter();
+
+    public TokenEndpointRateLimitFilter(TokenEndpointRateLimiter rateLimiter, RequestMatcher tokenEndpointMatcher) {
+        this.rateLimiter = rateLimiter;
+        this.tokenEndpointMatcher = tokenEndpointMatcher;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !tokenEndpointMatcher.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        long wait = rateLimiter.tryAcquire(request.getRemoteAddr(), request.getParameter(OAuth2ParameterNames.USERNAME));
+        if (wait == 0L) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+        httpResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        httpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(wait)));
+        OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE, "Too many token requests", null);
+        errorConverter.write(error, null, httpResponse);
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1L, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,56 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.util.MetricsSource;
+import com.devsuperior.dscommerce.util.TokenBucketRateLimiter;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throttles token requests per remote address and per username before any password is hashed.
+ * A request spends a token from each bucket it names and is turned away by the first empty one, so
+ * a burst from one address never reaches the username buckets. There is no per client bucket: every
+ * user logs in through the same public client, so such a bucket would cap logins for everyone.
+ */
+public class TokenEndpointRateLimiter implements MetricsSource {
+
+    private final TokenBucketRateLimiter<String> address;
+    private final TokenBucketRateLimiter<String> username;
+
+    public TokenEndpointRateLimiter(TokenBucketRateLimiter<String> address, TokenBucketRateLimiter<String> username) {
+        this.address = address;
+        this.username = username;
+    }
+
+    /**
+     * @return 0 when the request may proceed, otherwise the nanoseconds the caller should wait
+     */
+    public long tryAcquire(String remoteAddress, String user) {
+        long wait = address.tryAcquire(remoteAddress);
+        if (wait == 0L) {
+            wait = username.tryAcquire(user);
+        }
+        return wait;
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval:60000}")
+    public int sweep() {
+        return address.sweep() + username.sweep();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "security.rate-limit";
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        for (TokenBucketRateLimiter<String> limiter : List.of(address, username)) {
+            limiter.getMetrics().forEach((key, value) -> metrics.put(limiter.getMetricsName() + "." + key, value));
+        }
+        return metrics;
+    }
+}
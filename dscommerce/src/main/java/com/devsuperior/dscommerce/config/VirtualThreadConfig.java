@@ -0,0 +1,36 @@
+package com.devsuperior.dscommerce.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Active when spring.threads.virtual.enabled is set on Java 21, which puts Tomcat requests, @Async
+ * and @Scheduled work on virtual threads. Concurrency is then bounded where requests block, at
+ * connection acquisition, by default to the size of the Hikari pool.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                int maxConnections = environment.getRequiredProperty("concurrency.max-connections", Integer.class);
+                int acquireTimeout = environment.getRequiredProperty("concurrency.acquire-timeout", Integer.class);
+                return new ConnectionLimitingDataSource(dataSource, maxConnections, Duration.ofMillis(acquireTimeout));
+            }
+        };
+    }
+}
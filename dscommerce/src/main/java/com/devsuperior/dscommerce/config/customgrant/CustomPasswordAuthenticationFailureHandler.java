@@ -0,0 +1,43 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.web.authentication.OAuth2ErrorAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+import java.io.IOException;
+
+/**
+ * Answers token requests turned away for lack of password hashing capacity with 429 and Retry-After,
+ * leaving every other OAuth2 error to the default handler.
+ */
+public class CustomPasswordAuthenticationFailureHandler implements AuthenticationFailureHandler {
+
+	private static final String RETRY_AFTER_SECONDS = "1";
+	private final AuthenticationFailureHandler delegate = new OAuth2ErrorAuthenticationFailureHandler();
+	private final HttpMessageConverter<OAuth2Error> errorConverter = new OAuth2ErrorHttpMessageConverter();
+
+	@Override
+	public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+			AuthenticationException exception) throws IOException, ServletException {
+
+		if (exception instanceof OAuth2AuthenticationException oauth2Exception
+				&& OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE.equals(oauth2Exception.getError().getErrorCode())) {
+			ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+			httpResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+			httpResponse.getHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+			errorConverter.write(oauth2Exception.getError(), null, httpResponse);
+			return;
+		}
+		delegate.onAuthenticationFailure(request, response, exception);
+	}
+}
@@ -1,10 +1,13 @@
 package com.devsuperior.dscommerce.config.customgrant;
 
+import com.devsuperior.dscommerce.config.PasswordEncoderBusyException;
+import com.devsuperior.dscommerce.entities.User;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -22,24 +25,29 @@ import org.springframework.security.oauth2.server.authorization.token.OAuth2Toke
 import org.springframework.util.Assert;
 
 import java.security.Principal;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class CustomPasswordAuthenticationProvider implements AuthenticationProvider {
 
 	private static final String ERROR_URI = "https://datatracker.ietf.org/doc/html/rfc6749#section-5.2";
+	private static final AuthorizationGrantType PASSWORD = new AuthorizationGrantType("password");
 	private final OAuth2AuthorizationService authorizationService;
 	private final UserDetailsService userDetailsService;
 	private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
 	private final PasswordEncoder passwordEncoder;
-	private String username = "";
-	private String password = "";
-	private Set<String> authorizedScopes = new HashSet<>();
+	private final UserDetailsPasswordService userDetailsPasswordService;
 
 	public CustomPasswordAuthenticationProvider(OAuth2AuthorizationService authorizationService,
 			OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator, 
 			UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+		this(authorizationService, tokenGenerator, userDetailsService, passwordEncoder, null);
+	}
+
+	public CustomPasswordAuthenticationProvider(OAuth2AuthorizationService authorizationService,
+			OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator,
+			UserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+			UserDetailsPasswordService userDetailsPasswordService) {
 		
 		Assert.notNull(authorizationService, "authorizationService cannot be null");
 		Assert.notNull(tokenGenerator, "TokenGenerator cannot be null");
@@ -49,16 +57,20 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		this.tokenGenerator = tokenGenerator;
 		this.userDetailsService = userDetailsService;
 		this.passwordEncoder = passwordEncoder;
+		this.userDetailsPasswordService = userDetailsPasswordService;
 	}
 	
+	/**
+	 * Shared by all token requests, so everything specific to a request must stay in local variables.
+	 */
 	@Override
 	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
 		
 		CustomPasswordAuthenticationToken customPasswordAuthenticationToken = (CustomPasswordAuthenticationToken) authentication;
 		OAuth2ClientAuthenticationToken clientPrincipal = getAuthenticatedClientElseThrowInvalidClient(customPasswordAuthenticationToken);
 		RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
-		username = customPasswordAuthenticationToken.getUsername();
-		password = customPasswordAuthenticationToken.getPassword();	
+		String username = customPasswordAuthenticationToken.getUsername();
+		String password = customPasswordAuthenticationToken.getPassword();
 		
 		UserDetails user = null;
 		try {
@@ -67,22 +79,24 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 			throw new OAuth2AuthenticationException("Invalid credentials");
 		}
 				
-		if (!passwordEncoder.matches(password, user.getPassword()) || !user.getUsername().equals(username)) {
+		if (!matches(password, user.getPassword()) || !user.getUsername().equals(username)) {
 			throw new OAuth2AuthenticationException("Invalid credentials");
 		}
+		upgradeEncoding(user, password);
 		
-		authorizedScopes = user.getAuthorities().stream()
+		Set<String> authorizedScopes = user.getAuthorities().stream()
 				.map(scope -> scope.getAuthority())
 				.filter(scope -> registeredClient.getScopes().contains(scope))
 				.collect(Collectors.toSet());
 		
 		//-----------Create a new Security Context Holder Context----------
-		OAuth2ClientAuthenticationToken oAuth2ClientAuthenticationToken = (OAuth2ClientAuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
-		CustomUserAuthorities customPasswordUser = new CustomUserAuthorities(username, user.getAuthorities());
-		oAuth2ClientAuthenticationToken.setDetails(customPasswordUser);
+		Long userId = (user instanceof User entity) ? entity.getId() : null;
+		String name = (user instanceof User entity) ? entity.getName() : null;
+		CustomUserAuthorities customPasswordUser = new CustomUserAuthorities(userId, username, name, user.getAuthorities());
+		clientPrincipal.setDetails(customPasswordUser);
 		
 		var newcontext = SecurityContextHolder.createEmptyContext();
-		newcontext.setAuthentication(oAuth2ClientAuthenticationToken);
+		newcontext.setAuthentication(clientPrincipal);
 		SecurityContextHolder.setContext(newcontext);		
 		
 		//-----------TOKEN BUILDERS----------
@@ -91,13 +105,13 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 				.principal(clientPrincipal)
 				.authorizationServerContext(AuthorizationServerContextHolder.getContext())
 				.authorizedScopes(authorizedScopes)
-				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.authorizationGrantType(PASSWORD)
 				.authorizationGrant(customPasswordAuthenticationToken);
 		
 		OAuth2Authorization.Builder authorizationBuilder = OAuth2Authorization.withRegisteredClient(registeredClient)
 				.attribute(Principal.class.getName(), clientPrincipal)
 				.principalName(clientPrincipal.getName())
-				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.authorizationGrantType(PASSWORD)
 				.authorizedScopes(authorizedScopes);
 		
 		//-----------ACCESS TOKEN----------
@@ -118,11 +132,27 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		} else {
 			authorizationBuilder.accessToken(accessToken);
 		}
+
+		//-----------REFRESH TOKEN----------
+		OAuth2RefreshToken refreshToken = null;
+		if (registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.REFRESH_TOKEN) &&
+				!clientPrincipal.getClientAuthenticationMethod().equals(ClientAuthenticationMethod.NONE)) {
+
+			tokenContext = tokenContextBuilder.tokenType(OAuth2TokenType.REFRESH_TOKEN).build();
+			OAuth2Token generatedRefreshToken = this.tokenGenerator.generate(tokenContext);
+			if (!(generatedRefreshToken instanceof OAuth2RefreshToken)) {
+				OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR,
+						"The token generator failed to generate the refresh token.", ERROR_URI);
+				throw new OAuth2AuthenticationException(error);
+			}
+			refreshToken = (OAuth2RefreshToken) generatedRefreshToken;
+			authorizationBuilder.refreshToken(refreshToken);
+		}
 				
 		OAuth2Authorization authorization = authorizationBuilder.build();
 		this.authorizationService.save(authorization);
 		
-		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken);
+		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken, refreshToken);
 	}
 
 	@Override
@@ -130,6 +160,27 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		return CustomPasswordAuthenticationToken.class.isAssignableFrom(authentication);
 	}
 
+	private boolean matches(String password, String encodedPassword) {
+		try {
+			return passwordEncoder.matches(password, encodedPassword);
+		} catch (PasswordEncoderBusyException e) {
+			OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+					"Too many login attempts, try again later", ERROR_URI);
+			throw new OAuth2AuthenticationException(error);
+		}
+	}
+
+	private void upgradeEncoding(UserDetails user, String password) {
+		if (userDetailsPasswordService == null || !passwordEncoder.upgradeEncoding(user.getPassword())) {
+			return;
+		}
+		try {
+			userDetailsPasswordService.updatePassword(user, passwordEncoder.encode(password));
+		} catch (PasswordEncoderBusyException e) {
+			// the stale hash still matches, so the upgrade is retried on the next login
+		}
+	}
+
 	private static OAuth2ClientAuthenticationToken getAuthenticatedClientElseThrowInvalidClient(Authentication authentication) {
 		
 		OAuth2ClientAuthenticationToken clientPrincipal = null;
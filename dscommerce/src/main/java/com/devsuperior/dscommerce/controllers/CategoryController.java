@@ -5,13 +5,17 @@ import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
 import com.devsuperior.dscommerce.services.CategoryService;
 import com.devsuperior.dscommerce.services.ProductService;
+import com.devsuperior.dscommerce.util.CatalogVersion;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -24,10 +28,20 @@ public class CategoryController {
     @Autowired
     private CategoryService service;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CacheControl catalogCacheControl;
+
     @GetMapping
-    public ResponseEntity<List<CategoryDTO>> findAll() {
+    public ResponseEntity<List<CategoryDTO>> findAll(WebRequest request) {
+        String eTag = catalogVersion.eTag("categories");
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(catalogCacheControl).build();
+        }
         List<CategoryDTO> list = service.findAll();
-        return ResponseEntity.ok(list);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(catalogCacheControl).body(list);
     }
 
 }
@@ -0,0 +1,32 @@
+package com.devsuperior.dscommerce.controllers;
+
+import com.devsuperior.dscommerce.util.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping(value = "/metrics")
+public class MetricsController {
+
+    @Autowired
+    private List<MetricsSource> sources;
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, Number>>> findAll() {
+        Map<String, Map<String, Number>> result = new TreeMap<>();
+        for (MetricsSource source : sources) {
+            result.put(source.getMetricsName(), source.getMetrics());
+        }
+        return ResponseEntity.ok(result);
+    }
+
+}
@@ -1,22 +1,28 @@
 package com.devsuperior.dscommerce.controllers;
 
+import com.devsuperior.dscommerce.dto.CategoryFacetDTO;
+import com.devsuperior.dscommerce.dto.ProductBatchDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
-import com.devsuperior.dscommerce.entities.Product;
-import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.dto.ProductSliceDTO;
+import com.devsuperior.dscommerce.dto.ProductSuggestionDTO;
 import com.devsuperior.dscommerce.services.ProductService;
+import com.devsuperior.dscommerce.util.CatalogVersion;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
-import java.util.Optional;
+import java.util.List;
 
 @RestController
 @RequestMapping(value = "/products")
@@ -25,17 +31,92 @@ public class ProductController {
     @Autowired
     private ProductService service;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CacheControl catalogCacheControl;
+
     @GetMapping(value = "/{id}")
-    public ResponseEntity<ProductDTO> findById(@PathVariable Long id) {
+    public ResponseEntity<ProductDTO> findById(@PathVariable Long id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = productETag(id, service.findVersion(id));
+            if (request.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(catalogCacheControl).build();
+            }
+        }
         ProductDTO dto = service.findById(id);
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok().eTag(productETag(id, dto.getVersion())).cacheControl(catalogCacheControl).body(dto);
     }
 
     @GetMapping
     public ResponseEntity<Page<ProductMinDTO>> findAll(
-            @RequestParam(name = "name", defaultValue = "") String name, Pageable pageable) {
-        Page<ProductMinDTO> dto = service.findAll(name, pageable);
-        return ResponseEntity.ok(dto);
+            @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestParam(name = "categoryId", defaultValue = "") List<Long> categoryIds,
+            @RequestParam(name = "minPrice", required = false) Double minPrice,
+            @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(name = "fuzzy", defaultValue = "false") Boolean fuzzy,
+            Pageable pageable, WebRequest request) {
+        String eTag = catalogVersion.eTag("products");
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(catalogCacheControl).build();
+        }
+        Page<ProductMinDTO> dto = fuzzy
+                ? service.findAllFuzzy(name, categoryIds, minPrice, maxPrice, pageable)
+                : service.findAll(name, categoryIds, minPrice, maxPrice, pageable);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(catalogCacheControl).body(dto);
+    }
+
+    @GetMapping(value = "/facets")
+    public ResponseEntity<List<CategoryFacetDTO>> findCategoryFacets(
+            @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestParam(name = "minPrice", required = false) Double minPrice,
+            @RequestParam(name = "maxPrice", required = false) Double maxPrice, WebRequest request) {
+        String eTag = catalogVersion.eTag("product-facets");
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(catalogCacheControl).build();
+        }
+        List<CategoryFacetDTO> dto = service.findCategoryFacets(name, minPrice, maxPrice);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(catalogCacheControl).body(dto);
+    }
+
+    @GetMapping(value = "/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggest(
+            @RequestParam(name = "prefix", defaultValue = "") String prefix,
+            @RequestParam(name = "size", defaultValue = "10") Integer size, WebRequest request) {
+        String eTag = catalogVersion.eTag("product-suggestions");
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(catalogCacheControl).build();
+        }
+        List<ProductSuggestionDTO> dto = service.suggest(prefix, size);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(catalogCacheControl).body(dto);
+    }
+
+    @GetMapping(params = "after")
+    public ResponseEntity<ProductSliceDTO> findAllAfter(
+            @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestParam(name = "categoryId", defaultValue = "") List<Long> categoryIds,
+            @RequestParam(name = "minPrice", required = false) Double minPrice,
+            @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(name = "fuzzy", defaultValue = "false") Boolean fuzzy,
+            @RequestParam(name = "after") String after,
+            @RequestParam(name = "size", defaultValue = "20") Integer size, WebRequest request) {
+        String eTag = catalogVersion.eTag("products");
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(catalogCacheControl).build();
+        }
+        ProductSliceDTO dto = service.findAllAfter(name, categoryIds, minPrice, maxPrice, fuzzy, after, size);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(catalogCacheControl).body(dto);
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<ProductBatchDTO> findAllByIds(@RequestParam(name = "ids") List<Long> ids, WebRequest request) {
+        String eTag = catalogVersion.eTag("products");
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(catalogCacheControl).build();
+        }
+        ProductBatchDTO dto = service.findAllByIds(ids);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(catalogCacheControl).body(dto);
     }
 
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -61,4 +142,8 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    private static String productETag(Long id, Integer version) {
+        return "\"product-" + id + "-" + version + "\"";
+    }
+
 }
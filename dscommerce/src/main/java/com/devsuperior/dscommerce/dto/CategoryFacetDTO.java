@@ -0,0 +1,26 @@
+package com.devsuperior.dscommerce.dto;
+
+public class CategoryFacetDTO {
+
+    private Long id;
+    private String name;
+    private Integer count;
+
+    public CategoryFacetDTO(Long id, String name, Integer count) {
+        this.id = id;
+        this.name = name;
+        this.count = count;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+}
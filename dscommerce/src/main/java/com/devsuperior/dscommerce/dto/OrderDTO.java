@@ -34,10 +34,14 @@ public class OrderDTO {
     }
 
     public OrderDTO(Order entity) {
+        this(entity, new ClientDTO(entity.getClient()));
+    }
+
+    public OrderDTO(Order entity, ClientDTO client) {
         id = entity.getId();
         moment = entity.getMoment();
         status = entity.getStatus();
-        client = new ClientDTO(entity.getClient());
+        this.client = client;
         payment = (entity.getPayment() == null) ? null : new PaymentDTO(entity.getPayment());
         for (OrderItem item : entity.getItems()) {
             items.add(new OrderItemDTO(item));
@@ -0,0 +1,22 @@
+package com.devsuperior.dscommerce.dto;
+
+import java.util.List;
+
+public class ProductBatchDTO {
+
+    private List<ProductDTO> content;
+    private List<Long> missing;
+
+    public ProductBatchDTO(List<ProductDTO> content, List<Long> missing) {
+        this.content = content;
+        this.missing = missing;
+    }
+
+    public List<ProductDTO> getContent() {
+        return content;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+}
@@ -2,6 +2,7 @@ package com.devsuperior.dscommerce.dto;
 
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 
 import java.util.ArrayList;
@@ -20,6 +21,8 @@ public class ProductDTO {
     @NotNull(message = "Campo Requirido")
     private Double price;
     private String imgUrl;
+    @JsonIgnore
+    private Integer version;
 
     @NotEmpty(message = "Deve ter pelo menos uma categoria")
     private List<CategoryDTO> categories = new ArrayList<>();
@@ -41,6 +44,7 @@ public class ProductDTO {
         description = entity.getDescription();
         price = entity.getPrice();
         imgUrl = entity.getImgUrl();
+        version = entity.getVersion();
         for (Category cat : entity.getCategories()) {
             categories.add(new CategoryDTO(cat));
         }
@@ -82,6 +86,10 @@ public class ProductDTO {
         return imgUrl;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     public void setImgUrl(String imgUrl) {
         this.imgUrl = imgUrl;
     }
@@ -0,0 +1,26 @@
+package com.devsuperior.dscommerce.dto;
+
+import java.util.List;
+
+public class ProductSliceDTO {
+
+    private List<ProductMinDTO> content;
+    private String next;
+
+    public ProductSliceDTO(List<ProductMinDTO> content, String next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<ProductMinDTO> getContent() {
+        return content;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public boolean isHasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.devsuperior.dscommerce.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.util.Objects;
+
+/**
+ * Single row whose version is bumped after every product write, shared by every node reading the same
+ * database. Nodes poll it to notice writes made elsewhere and bring their search indexes up to date.
+ */
+@Entity
+@Table(name = "tb_catalog")
+public class Catalog {
+
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+    private Long version;
+
+    public Catalog() {
+    }
+
+    public Catalog(Long id, Long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Catalog catalog = (Catalog) o;
+
+        return Objects.equals(id, catalog.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+}
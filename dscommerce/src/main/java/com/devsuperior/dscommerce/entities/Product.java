@@ -1,18 +1,23 @@
 package com.devsuperior.dscommerce.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 @Entity
-@Table(name = "tb_product")
+@Table(name = "tb_product", indexes = @Index(name = "idx_product_name_id", columnList = "name, id"))
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_product")
+    @SequenceGenerator(name = "seq_product", sequenceName = "tb_product_seq", allocationSize = 50)
     private Long id;
     private String name;
     @Column(columnDefinition = "TEXT")
@@ -20,6 +25,11 @@ public class Product {
     private Double price;
     private String imgUrl;
 
+    @Version
+    @Column(columnDefinition = "integer default 0")
+    private Integer version;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product.categories")
     @ManyToMany
     @JoinTable(name = "tb_product_category",
             joinColumns = @JoinColumn(name = "product_id"),
@@ -80,6 +90,10 @@ public class Product {
         this.imgUrl = imgUrl;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     public Set<Category> getCategories() {
         return categories;
     }
@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.projections;
+
+public interface ProductCategoryProjection {
+
+    Long getProductId();
+    Long getCategoryId();
+
+}
@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.projections;
+
+public interface ProductNameProjection {
+
+    Long getId();
+    String getName();
+
+}
@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.projections;
+
+public interface ProductPriceProjection {
+
+    Long getId();
+    Double getPrice();
+
+}
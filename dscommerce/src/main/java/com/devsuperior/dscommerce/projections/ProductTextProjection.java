@@ -0,0 +1,10 @@
+package com.devsuperior.dscommerce.projections;
+
+public interface ProductTextProjection {
+
+    Long getId();
+    Integer getVersion();
+    String getName();
+    String getDescription();
+
+}
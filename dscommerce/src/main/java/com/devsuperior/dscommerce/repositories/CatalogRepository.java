@@ -0,0 +1,20 @@
+package com.devsuperior.dscommerce.repositories;
+
+import com.devsuperior.dscommerce.entities.Catalog;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogRepository extends JpaRepository<Catalog, Long> {
+
+    @Modifying
+    @Query("UPDATE Catalog obj SET obj.version = obj.version + 1 WHERE obj.id = :id")
+    int incrementVersion(Long id);
+
+    @Query("SELECT obj.version FROM Catalog obj WHERE obj.id = :id")
+    Optional<Long> searchVersion(Long id);
+}
@@ -2,8 +2,21 @@ package com.devsuperior.dscommerce.repositories;
 
 import com.devsuperior.dscommerce.entities.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    @Query("SELECT obj " +
+            "FROM Order obj " +
+            "JOIN FETCH obj.client " +
+            "LEFT JOIN FETCH obj.payment " +
+            "LEFT JOIN FETCH obj.items item " +
+            "LEFT JOIN FETCH item.id.product " +
+            "WHERE obj.id = :id")
+    Optional<Order> searchWithItems(Long id);
+
 }
@@ -1,19 +1,75 @@
 package com.devsuperior.dscommerce.repositories;
 
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
 import com.devsuperior.dscommerce.entities.Product;
-import jdk.jfr.Registered;
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+import com.devsuperior.dscommerce.projections.ProductNameProjection;
+import com.devsuperior.dscommerce.projections.ProductPriceProjection;
+import com.devsuperior.dscommerce.projections.ProductTextProjection;
+import com.devsuperior.dscommerce.projections.ProductVersionProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
-    @Query("SELECT obj " +
+    @Query(value = "SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) " +
+            "FROM Product obj " +
+            "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%'))",
+            countQuery = "SELECT COUNT(obj) " +
             "FROM Product obj " +
             "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%'))")
-    Page<Product> search(String name, Pageable pageable);
+    Page<ProductMinDTO> search(String name, Pageable pageable);
+
+    @Query("SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) " +
+            "FROM Product obj " +
+            "WHERE obj.id IN :ids")
+    List<ProductMinDTO> searchAllByIds(List<Long> ids);
+
+    @Query("SELECT obj " +
+            "FROM Product obj " +
+            "LEFT JOIN FETCH obj.categories " +
+            "WHERE obj.id = :id")
+    Optional<Product> searchWithCategories(Long id);
+
+    @Query("SELECT obj.version FROM Product obj WHERE obj.id = :id")
+    Optional<Integer> searchVersion(Long id);
+
+    @Query("SELECT obj " +
+            "FROM Product obj " +
+            "LEFT JOIN FETCH obj.categories " +
+            "WHERE obj.id IN :ids")
+    List<Product> searchWithCategoriesByIds(Collection<Long> ids);
+
+    @Query("SELECT obj FROM Product obj WHERE obj.id IN :ids")
+    List<Product> searchEntitiesByIds(Collection<Long> ids);
+
+    @Query("SELECT obj.id AS id, obj.name AS name FROM Product obj")
+    List<ProductNameProjection> searchAllNames();
+
+    @Query("SELECT obj.id AS productId, cat.id AS categoryId FROM Product obj JOIN obj.categories cat")
+    List<ProductCategoryProjection> searchAllCategoryIds();
+
+    @Query("SELECT obj.id AS id, obj.price AS price FROM Product obj")
+    List<ProductPriceProjection> searchAllPrices();
+
+    @Query("SELECT obj.id AS id, obj.version AS version, obj.name AS name, obj.description AS description " +
+            "FROM Product obj")
+    List<ProductTextProjection> searchAllTexts();
+
+    @Query("SELECT obj.id AS id, obj.version AS version, obj.name AS name, obj.description AS description " +
+            "FROM Product obj " +
+            "WHERE obj.id IN :ids")
+    List<ProductTextProjection> searchTextsByIds(Collection<Long> ids);
+
+    @Query("SELECT obj.id AS id, obj.version AS version FROM Product obj")
+    List<ProductVersionProjection> searchAllVersions();
 
 }
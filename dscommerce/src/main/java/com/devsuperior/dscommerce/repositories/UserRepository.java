@@ -3,6 +3,7 @@ package com.devsuperior.dscommerce.repositories;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.projections.UserDetailsProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -13,7 +14,7 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query(nativeQuery = true, value = """
-			SELECT tb_user.email AS username, tb_user.password, tb_role.id AS roleId, tb_role.authority
+			SELECT tb_user.id AS userId, tb_user.email AS username, tb_user.name, tb_user.password, tb_role.id AS roleId, tb_role.authority
 			FROM tb_user
 			INNER JOIN tb_user_role ON tb_user.id = tb_user_role.user_id
 			INNER JOIN tb_role ON tb_role.id = tb_user_role.role_id
@@ -23,4 +24,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
 	Optional<User> findByEmail(String email);
 
+	@Modifying
+	@Query("UPDATE User obj SET obj.password = :password WHERE obj.email = :email")
+	int updatePassword(String email, String password);
+
 }
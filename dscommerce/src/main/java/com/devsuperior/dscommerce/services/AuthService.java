@@ -1,7 +1,7 @@
 package com.devsuperior.dscommerce.services;
 
-import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
+import com.devsuperior.dscommerce.util.CustomUserUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -9,15 +9,13 @@ import org.springframework.stereotype.Service;
 public class AuthService {
 
     @Autowired
-    private UserService userService;
+    private CustomUserUtil customUserUtil;
 
     public void validateSelfOrAdmin(Long userId) {
-        User me = userService.authenticated();
-
-        if (me.hasRole("ROLE_ADMIN")) {
+        if (customUserUtil.loggedUserHasRole("ROLE_ADMIN")) {
             return;
         }
-        if (!me.getId().equals(userId)) {
+        if (!userId.equals(customUserUtil.getLoggedUserId())) {
             throw new ForbiddenException("Access denied. Should be self or admin");
         }
     }
@@ -4,7 +4,6 @@ import com.devsuperior.dscommerce.dto.OrderDTO;
 import com.devsuperior.dscommerce.dto.OrderItemDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.entities.*;
-import com.devsuperior.dscommerce.repositories.OrderItemRepository;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
@@ -14,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.file.ReadOnlyFileSystemException;
 import java.time.Instant;
+import java.util.*;
 
 @Service
 public class OrderService {
@@ -24,9 +24,6 @@ public class OrderService {
     @Autowired
     private ProductRepository productRepository;
 
-    @Autowired
-    private OrderItemRepository orderItemRepository;
-
     @Autowired
     private UserService userService;
 
@@ -35,7 +32,7 @@ public class OrderService {
 
     @Transactional(readOnly = true)
     public OrderDTO findById(Long id) {
-        Order order = repository.findById(id).orElseThrow(
+        Order order = repository.searchWithItems(id).orElseThrow(
                 () -> new ResourceNotFoundException("Recurso não encontrado"));
         authService.validateSelfOrAdmin(order.getClient().getId());
         return new OrderDTO(order);
@@ -48,20 +45,37 @@ public class OrderService {
         order.setMoment(Instant.now());
         order.setStatus(OrderStatus.WAITING_PAYMENT);
 
-        User user = userService.authenticated();
+        User user = userService.authenticatedReference();
         order.setClient(user);
 
+        Map<Long, Product> products = findProducts(dto.getItems());
         for (OrderItemDTO itemDto : dto.getItems()) {
-            Product product = productRepository.getReferenceById(itemDto.getProductId());
+            Product product = products.get(itemDto.getProductId());
             OrderItem item = new OrderItem(order, product, itemDto.getQuantity(), product.getPrice());
             order.getItems().add(item);
         }
 
+        // items are persisted by cascade and inserted in JDBC batches at flush
         order = repository.save(order);
-        orderItemRepository.saveAll(order.getItems());
 
-        return new OrderDTO(order);
+        return new OrderDTO(order, userService.authenticatedClient(user));
+
+    }
 
+    private Map<Long, Product> findProducts(List<OrderItemDTO> items) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (OrderItemDTO itemDto : items) {
+            ids.add(itemDto.getProductId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.searchEntitiesByIds(ids)) {
+            products.put(product.getId(), product);
+        }
+        ids.removeAll(products.keySet());
+        if (!ids.isEmpty()) {
+            throw new ResourceNotFoundException("Produto não encontrado: " + ids);
+        }
+        return products;
     }
 
 }
@@ -1,47 +1,362 @@
 package com.devsuperior.dscommerce.services;
 
 import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.CategoryFacetDTO;
+import com.devsuperior.dscommerce.dto.ProductBatchDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.ProductSliceDTO;
+import com.devsuperior.dscommerce.dto.ProductSuggestionDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.search.ProductCategoryIndex;
+import com.devsuperior.dscommerce.services.search.ProductFuzzyIndex;
+import com.devsuperior.dscommerce.services.search.ProductIndexer;
+import com.devsuperior.dscommerce.services.search.ProductNameIndex;
+import com.devsuperior.dscommerce.services.search.ProductNameTrie;
+import com.devsuperior.dscommerce.services.search.ProductPriceIndex;
+import com.devsuperior.dscommerce.services.search.ProductSearchMetrics;
+import com.devsuperior.dscommerce.services.search.ProductTextIndex;
+import com.devsuperior.dscommerce.services.search.Ranking;
+import com.devsuperior.dscommerce.util.BoundedCache;
 import jakarta.persistence.EntityNotFoundException;
 import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.lang.module.ResolutionException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    private static final int MAX_SLICE_SIZE = 2000;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+
     @Autowired
     private ModelMapper modelMapper;
 
     @Autowired
     private ProductRepository repository;
 
-    @Transactional(readOnly = true)
+    @Autowired
+    private ProductNameIndex nameIndex;
+
+    @Autowired
+    private ProductCategoryIndex categoryIndex;
+
+    @Autowired
+    private ProductPriceIndex priceIndex;
+
+    @Autowired
+    private ProductNameTrie nameTrie;
+
+    @Autowired
+    private ProductFuzzyIndex fuzzyIndex;
+
+    @Autowired
+    private ProductTextIndex textIndex;
+
+    @Autowired
+    private ProductIndexer indexer;
+
+    @Autowired
+    private ProductSearchMetrics searchMetrics;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BoundedCache<Long, ProductDTO> productCache;
+
     public ProductDTO findById(Long id) {
-        Product product = repository.findById(id).orElseThrow(
+        return productCache.get(id, x -> {
+            Product product = repository.searchWithCategories(x).orElseThrow(
+                    () -> new ResourceNotFoundException("Recurso não encontrado")
+            );
+            return new ProductDTO(product);
+        });
+    }
+
+    /**
+     * Version of a product, read from the product cache or with a query on the version alone, so that a
+     * conditional request can be answered without loading the product and its categories.
+     */
+    public Integer findVersion(Long id) {
+        ProductDTO cached = productCache.get(id);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return repository.searchVersion(id).orElseThrow(
                 () -> new ResourceNotFoundException("Recurso não encontrado")
         );
-        return new ProductDTO(product);
+    }
+
+    /**
+     * Products for a list of ids, in the order asked, served from the product cache where possible and
+     * loaded with their categories in one query otherwise. Ids with no product are reported, not thrown.
+     */
+    public ProductBatchDTO findAllByIds(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Máximo de " + MAX_BATCH_SIZE + " produtos por consulta");
+        }
+
+        Map<Long, ProductDTO> found = new HashMap<>();
+        // generation of each missing id, taken before the query so that an eviction during it wins
+        Map<Long, Long> notCached = new LinkedHashMap<>();
+        for (Long id : uniqueIds) {
+            long generation = productCache.generation(id);
+            ProductDTO dto = productCache.get(id);
+            if (dto != null) {
+                found.put(id, dto);
+            } else {
+                notCached.put(id, generation);
+            }
+        }
+        if (!notCached.isEmpty()) {
+            for (Product product : repository.searchWithCategoriesByIds(new ArrayList<>(notCached.keySet()))) {
+                ProductDTO dto = new ProductDTO(product);
+                Long generation = notCached.get(product.getId());
+                if (generation != null) {
+                    productCache.putIfNotInvalidated(product.getId(), dto, generation);
+                }
+                found.put(product.getId(), dto);
+            }
+        }
+
+        List<ProductDTO> content = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            ProductDTO dto = found.get(id);
+            if (dto != null) {
+                content.add(dto);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new ProductBatchDTO(content, missing);
     }
 
     @Transactional(readOnly = true)
-    public Page<ProductMinDTO> findAll(String name, Pageable pageable) {
-        Page<Product> product = repository.search(name, pageable);
-        return product.map(ProductMinDTO::new);
+    public Page<ProductMinDTO> findAll(String name, List<Long> categoryIds, Double minPrice, Double maxPrice,
+                                       Pageable pageable) {
+        boolean relevance = textIndex.canSort(pageable.getSort());
+        if (name == null || name.isEmpty()) {
+            if (relevance) {
+                // nothing to be relevant to
+                pageable = pageable.isPaged()
+                        ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize())
+                        : Pageable.unpaged();
+            }
+            return findAll(filter(null, categoryIds, minPrice, maxPrice), pageable);
+        }
+        if (relevance) {
+            return findAllByRelevance(name, categoryIds, minPrice, maxPrice, pageable);
+        }
+        long start = System.nanoTime();
+        try {
+            BitSet candidates = nameIndex.candidates(name);
+            return findAll(filter(candidates, categoryIds, minPrice, maxPrice), pageable);
+        } finally {
+            searchMetrics.recordExact(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * With sort=relevance the text is searched in name and description, word by word after Portuguese
+     * stemming, and products come by descending BM25F score. Any word is enough to match.
+     */
+    private Page<ProductMinDTO> findAllByRelevance(String text, List<Long> categoryIds, Double minPrice,
+                                                   Double maxPrice, Pageable pageable) {
+        long start = System.nanoTime();
+        try {
+            BitSet filter = filter(null, categoryIds, minPrice, maxPrice);
+            int limit = pageable.isPaged()
+                    ? (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE)
+                    : Integer.MAX_VALUE;
+            Ranking ranking = textIndex.search(text, filter, limit);
+            List<Long> ids = ranking.getIds();
+            int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), ids.size()) : 0;
+            return new PageImpl<>(findMinByIds(ids.subList(from, ids.size())), pageable, ranking.getTotal());
+        } finally {
+            searchMetrics.recordFullText(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Products whose name is close to the text despite typos, ranked by edit distance and then by
+     * relevance whatever the requested sort. Exact matches come first, at distance 0.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductMinDTO> findAllFuzzy(String name, List<Long> categoryIds, Double minPrice, Double maxPrice,
+                                            Pageable pageable) {
+        if (name == null || name.isEmpty()) {
+            return findAll(name, categoryIds, minPrice, maxPrice, pageable);
+        }
+        long start = System.nanoTime();
+        try {
+            BitSet filter = filter(null, categoryIds, minPrice, maxPrice);
+            Map<Long, Integer> distances = fuzzyIndex.search(name);
+            for (Long id : nameIndex.search(name)) {
+                distances.put(id, 0);
+            }
+            if (filter != null) {
+                distances.keySet().removeIf(id -> !filter.get(Math.toIntExact(id)));
+            }
+            List<Long> ids = fuzzyIndex.rank(distances);
+            return page(ids, pageable);
+        } finally {
+            searchMetrics.recordFuzzy(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Candidates narrowed by the category and price filters, null standing for every product.
+     */
+    private BitSet filter(BitSet candidates, List<Long> categoryIds, Double minPrice, Double maxPrice) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new BadRequestException("Preço mínimo maior que o preço máximo");
+        }
+        if (!categoryIds.isEmpty()) {
+            candidates = intersect(candidates, categoryIndex.search(categoryIds));
+        }
+        if (minPrice != null || maxPrice != null) {
+            candidates = intersect(candidates, priceIndex.range(minPrice, maxPrice));
+        }
+        return candidates;
+    }
+
+    private Page<ProductMinDTO> findAll(BitSet candidates, Pageable pageable) {
+        if (priceIndex.canSort(pageable.getSort())) {
+            Sort.Direction direction = pageable.getSort().toList().get(0).getDirection();
+            long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+            int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+            int total = (candidates == null) ? priceIndex.size() : candidates.cardinality();
+            List<Long> ids = priceIndex.sorted(candidates, direction, offset, limit);
+            return new PageImpl<>(findMinByIds(ids), pageable, total);
+        }
+        if (candidates == null) {
+            return repository.search("", pageable);
+        }
+        if (!nameIndex.canSort(pageable.getSort())) {
+            // the candidates are ordered in memory, any other order would need every candidate id in the query
+            throw new BadRequestException("Ordenação não suportada com filtros, use name, id, price ou relevance");
+        }
+
+        List<Long> ids = candidates.stream().mapToObj(id -> (long) id).toList();
+        if (ids.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return page(nameIndex.sort(ids, pageable.getSort()), pageable);
+    }
+
+    private Page<ProductMinDTO> page(List<Long> ids, Pageable pageable) {
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), ids.size()) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), ids.size()) : ids.size();
+        List<ProductMinDTO> content = findMinByIds(ids.subList(from, to));
+        return new PageImpl<>(content, pageable, ids.size());
+    }
+
+    /**
+     * Product counts per category among the products matching the name and price range, whatever categories
+     * are selected, so that the other categories can still be offered as filters.
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryFacetDTO> findCategoryFacets(String name, Double minPrice, Double maxPrice) {
+        BitSet candidates = null;
+        if (name != null && !name.isEmpty()) {
+            candidates = nameIndex.candidates(name);
+        }
+        candidates = filter(candidates, List.of(), minPrice, maxPrice);
+        Map<Long, Integer> counts = categoryIndex.count(candidates);
+        List<CategoryFacetDTO> result = new ArrayList<>();
+        for (Category category : categoryRepository.findAll()) {
+            Integer count = counts.get(category.getId());
+            if (count != null) {
+                result.add(new CategoryFacetDTO(category.getId(), category.getName(), count));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Names for the search box, answered from memory so that typing does not reach the database.
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, Integer size) {
+        int limit = Math.max(1, Math.min(size, MAX_SUGGESTIONS));
+        List<ProductSuggestionDTO> result = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : nameTrie.suggest(prefix, limit).entrySet()) {
+            result.add(new ProductSuggestionDTO(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Keyset pages in (name, id) order, taking the same name, category and price filters as findAll.
+     * Fuzzy matches are ranked by distance, which has no key to resume from.
+     */
+    @Transactional(readOnly = true)
+    public ProductSliceDTO findAllAfter(String name, List<Long> categoryIds, Double minPrice, Double maxPrice,
+                                        Boolean fuzzy, String after, Integer size) {
+        if (Boolean.TRUE.equals(fuzzy)) {
+            throw new BadRequestException("Busca aproximada não suporta paginação por cursor");
+        }
+        int limit = Math.max(1, Math.min(size, MAX_SLICE_SIZE));
+        String lastName = "";
+        Long lastId = 0L;
+        if (after != null && !after.isEmpty()) {
+            String[] key = decodeCursor(after);
+            lastId = Long.parseLong(key[0]);
+            lastName = key[1];
+        }
+
+        BitSet candidates = null;
+        if (name != null && !name.isEmpty()) {
+            candidates = nameIndex.candidates(name);
+        }
+        candidates = filter(candidates, categoryIds, minPrice, maxPrice);
+        List<ProductMinDTO> content = findMinByIds(nameIndex.searchAfter(candidates, lastName, lastId, limit + 1));
+
+        if (content.size() <= limit) {
+            return new ProductSliceDTO(content, null);
+        }
+        content = content.subList(0, limit);
+        ProductMinDTO last = content.get(limit - 1);
+        return new ProductSliceDTO(content, encodeCursor(last.getId(), last.getName()));
     }
 
     @Transactional
@@ -49,6 +364,8 @@ public class ProductService {
         Product entity = new Product();
         copyDtoToEntity(entity, dto);
         entity = repository.save(entity);
+        index(entity, categoryIds(dto));
+        evictCache(entity.getId());
         return new ProductDTO(entity);
     }
 
@@ -58,6 +375,8 @@ public class ProductService {
             Product entity = repository.getReferenceById(id);
             copyDtoToEntity(entity, dto);
             entity = repository.save(entity);
+            index(entity, categoryIds(dto));
+            evictCache(id);
             return new ProductDTO(entity);
         } catch (EntityNotFoundException e) {
             throw new ResourceNotFoundException("Recurso não encontrado");
@@ -72,11 +391,113 @@ public class ProductService {
 
         try {
             repository.deleteById(id);
+            unindex(id);
+            evictCache(id);
         } catch (DataIntegrityViolationException e) {
             throw new DatabaseException("Falha de integridade referencial");
         }
     }
 
+    private void index(Product entity, List<Long> categoryIds) {
+        Long id = entity.getId();
+        String name = entity.getName();
+        String description = entity.getDescription();
+        Double price = entity.getPrice();
+        afterCommit(() -> {
+            // read once committed, after the flush that incremented it
+            int version = Objects.requireNonNullElse(entity.getVersion(), 0);
+            indexer.put(id, version, name, description, price, categoryIds);
+        });
+    }
+
+    private void unindex(Long id) {
+        afterCommit(() -> indexer.remove(id));
+    }
+
+    private void evictCache(Long id) {
+        productCache.remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a read between the eviction and the commit could cache the old state again
+            afterCommit(() -> {
+                productCache.remove(id);
+                publishCatalogChange();
+            });
+        } else {
+            publishCatalogChange();
+        }
+    }
+
+    /**
+     * The write is already committed, so a failure to publish it to the other nodes is logged rather
+     * than reported to the client.
+     */
+    private void publishCatalogChange() {
+        try {
+            indexer.publish();
+        } catch (RuntimeException e) {
+            logger.error("Failed to publish the catalog change", e);
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction commits, so a rolled back write leaves the in-memory
+     * indexes untouched, or right away when there is no transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static BitSet intersect(BitSet candidates, BitSet filter) {
+        if (candidates != null) {
+            filter.and(candidates);
+        }
+        return filter;
+    }
+
+    private static List<Long> categoryIds(ProductDTO dto) {
+        return dto.getCategories().stream().map(CategoryDTO::getId).toList();
+    }
+
+    private List<ProductMinDTO> findMinByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductMinDTO> products = repository.searchAllByIds(ids).stream()
+                .collect(Collectors.toMap(ProductMinDTO::getId, Function.identity()));
+        return ids.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static String encodeCursor(Long id, String name) {
+        String key = id + ":" + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split(":", 2);
+            Long.parseLong(parts[0]);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Cursor inválido");
+        }
+    }
+
     private void copyDtoToEntity(Product entity, ProductDTO dto) {
         entity.setName(dto.getName());
         entity.setDescription(dto.getDescription());
@@ -1,26 +1,31 @@
 package com.devsuperior.dscommerce.services;
 
+import com.devsuperior.dscommerce.dto.ClientDTO;
 import com.devsuperior.dscommerce.dto.UserDTO;
 import com.devsuperior.dscommerce.entities.Role;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.projections.UserDetailsProjection;
 import com.devsuperior.dscommerce.repositories.UserRepository;
+import com.devsuperior.dscommerce.util.BoundedCache;
 import com.devsuperior.dscommerce.util.CustomUserUtil;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository repository;
@@ -31,15 +36,23 @@ public class UserService implements UserDetailsService {
     @Autowired
     private CustomUserUtil customUserUtil;
 
+    @Autowired
+    private BoundedCache<String, UserDetails> userDetailsCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::searchUserDetails);
+    }
 
+    private UserDetails searchUserDetails(String username) {
         List<UserDetailsProjection> result = repository.searchUserAndRolesByEmail(username);
         if (result.isEmpty()) {
             throw new UsernameNotFoundException("User not found");
         }
         User user = new User();
+        user.setId(result.get(0).getUserId());
         user.setEmail(username);
+        user.setName(result.get(0).getName());
         user.setPassword(result.get(0).getPassword());
 
         for (UserDetailsProjection projection : result) {
@@ -49,6 +62,32 @@ public class UserService implements UserDetailsService {
         return user;
     }
 
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        repository.updatePassword(user.getUsername(), newPassword);
+        evictUserDetails(user.getUsername());
+        // not cached: the new hash is not committed yet and the transaction may still roll back
+        return searchUserDetails(user.getUsername());
+    }
+
+    /**
+     * Must be called by anything that changes a user's password or roles. Each removal also invalidates
+     * the logins loading the user at that moment, so the old credentials they read are not cached.
+     */
+    public void evictUserDetails(String username) {
+        userDetailsCache.remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a login between the eviction and the commit could cache the old credentials again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userDetailsCache.remove(username);
+                }
+            });
+        }
+    }
+
     protected User authenticated() {
         try {
             String username = customUserUtil.getLoggedUsername();
@@ -59,6 +98,31 @@ public class UserService implements UserDetailsService {
 
     }
 
+    /**
+     * The logged user as an uninitialized reference built from the token's user id claim.
+     */
+    protected User authenticatedReference() {
+        Long userId;
+        try {
+            userId = customUserUtil.getLoggedUserId();
+        } catch (Exception e) {
+            throw new UsernameNotFoundException("Email not found");
+        }
+        if (userId == null) {
+            throw new UsernameNotFoundException("Email not found");
+        }
+        return repository.getReferenceById(userId);
+    }
+
+    /**
+     * The logged user as the client of an order, from the token's user id and name claims so that the
+     * reference stays uninitialized. Tokens issued before the name claim fall back to loading the user.
+     */
+    protected ClientDTO authenticatedClient(User reference) {
+        String name = customUserUtil.getLoggedName();
+        return (name != null) ? new ClientDTO(reference.getId(), name) : new ClientDTO(reference);
+    }
+
     @Transactional(readOnly = true)
     public UserDTO findMe() {
         User user = authenticated();
@@ -0,0 +1,40 @@
+package com.devsuperior.dscommerce.services.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Conversions between product ids and the bitmaps the indexes exchange. Product ids come from a
+ * sequence and are dense, so each id is its own bit.
+ */
+final class BitSets {
+
+    private BitSets() {
+    }
+
+    static BitSet of(Collection<Long> ids) {
+        BitSet result = new BitSet();
+        for (Long id : ids) {
+            result.set(bit(id));
+        }
+        return result;
+    }
+
+    static List<Long> toIds(BitSet bitmap) {
+        List<Long> result = new ArrayList<>(bitmap.cardinality());
+        for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1)) {
+            result.add((long) i);
+        }
+        return result;
+    }
+
+    static boolean contains(BitSet bitmap, long id) {
+        return id <= Integer.MAX_VALUE && bitmap.get((int) id);
+    }
+
+    static int bit(long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -0,0 +1,79 @@
+package com.devsuperior.dscommerce.services.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns Portuguese text into search terms: words of letters and digits, folded to lower case without
+ * accents, without stopwords and reduced by a light stemmer that strips plural and gender endings, so
+ * "Eletrônicos", "eletrônica" and "ELETRONICO" give the same term. Words ending in "ão" keep it, so that
+ * "cartão" does not become "carta".
+ */
+public final class PortugueseAnalyzer {
+
+    private static final int MIN_STEM_LENGTH = 4;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "ao", "aos", "as", "com", "como", "da", "das", "de", "do", "dos", "e", "ela", "ele", "em",
+            "entre", "essa", "esse", "esta", "este", "isso", "mais", "mas", "na", "nas", "nem", "no", "nos",
+            "o", "os", "ou", "para", "pela", "pelas", "pelo", "pelos", "por", "que", "se", "sem", "seu", "sua",
+            "um", "uma", "umas", "uns");
+
+    private PortugueseAnalyzer() {
+    }
+
+    public static List<String> analyze(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        String folded = ProductNameTrie.fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String word = folded.substring(start, i);
+                if (!STOPWORDS.contains(word)) {
+                    result.add(stem(word));
+                }
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    static String stem(String word) {
+        if (word.length() < MIN_STEM_LENGTH || !Character.isLetter(word.charAt(word.length() - 1))) {
+            return word;
+        }
+        String result = plural(word);
+        char last = result.charAt(result.length() - 1);
+        boolean gender = last == 'a' || last == 'o' || last == 'e';
+        if (result.length() > MIN_STEM_LENGTH && gender && !result.endsWith("ao")) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
+
+    private static String plural(String word) {
+        if (!word.endsWith("s") || word.endsWith("ss") || word.endsWith("us")) {
+            return word;
+        }
+        if (word.endsWith("oes") || word.endsWith("aes")) {
+            return word.substring(0, word.length() - 3) + "ao";
+        }
+        if (word.endsWith("ns")) {
+            return word.substring(0, word.length() - 2) + "m";
+        }
+        if (word.endsWith("ais") || word.endsWith("eis") || word.endsWith("ois")) {
+            return word.substring(0, word.length() - 2) + "l";
+        }
+        if (word.endsWith("res") || word.endsWith("zes") || word.endsWith("les")) {
+            return word.substring(0, word.length() - 2);
+        }
+        return word.substring(0, word.length() - 1);
+    }
+}
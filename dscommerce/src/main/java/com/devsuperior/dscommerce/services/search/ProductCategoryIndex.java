@@ -0,0 +1,121 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One bitmap of product ids per category, kept in memory so that GET /products can filter by category
+ * and count products per category without joining tb_product_category. Product ids come from a sequence
+ * and are dense, so a bitmap costs about one bit per product per category and a count is a popcount.
+ */
+@Component
+public class ProductCategoryIndex {
+
+    @Autowired
+    private ProductRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, BitSet> products = new HashMap<>();
+
+    public void rebuild() {
+        List<ProductCategoryProjection> result = repository.searchAllCategoryIds();
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            for (ProductCategoryProjection projection : result) {
+                add(projection.getProductId(), projection.getCategoryId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long productId, Collection<Long> categoryIds) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+            for (Long categoryId : categoryIds) {
+                add(productId, categoryId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Products in any of the given categories.
+     */
+    public BitSet search(Collection<Long> categoryIds) {
+        BitSet result = new BitSet();
+        lock.readLock().lock();
+        try {
+            for (Long categoryId : categoryIds) {
+                BitSet bitmap = products.get(categoryId);
+                if (bitmap != null) {
+                    result.or(bitmap);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Number of products per category, counting only the candidates when given. Categories with no
+     * product left out.
+     */
+    public Map<Long, Integer> count(BitSet candidates) {
+        Map<Long, Integer> result = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Long, BitSet> entry : products.entrySet()) {
+                int count;
+                if (candidates == null) {
+                    count = entry.getValue().cardinality();
+                } else {
+                    BitSet intersection = (BitSet) entry.getValue().clone();
+                    intersection.and(candidates);
+                    count = intersection.cardinality();
+                }
+                if (count > 0) {
+                    result.put(entry.getKey(), count);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void add(Long productId, Long categoryId) {
+        products.computeIfAbsent(categoryId, x -> new BitSet()).set(BitSets.bit(productId));
+    }
+
+    private void delete(Long productId) {
+        int bit = BitSets.bit(productId);
+        Iterator<BitSet> it = products.values().iterator();
+        while (it.hasNext()) {
+            BitSet bitmap = it.next();
+            bitmap.clear(bit);
+            if (bitmap.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.projections.ProductNameProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo tolerant lookup of product names, word by word. Edit distances are computed against the
+ * vocabulary of distinct name words, never against every product: a trigram index over the vocabulary
+ * keeps only the words that can be within the allowed distance of a query word, and each remaining
+ * word leads to its products through a postings list. Short words, whose trigrams cannot rule anything
+ * out, are looked up by their deletion neighbourhoods instead, as in SymSpell.
+ */
+@Component
+public class ProductFuzzyIndex {
+
+    private static final int GRAM = 3;
+    private static final char PAD = '$';
+    private static final int MAX_EDITS = 2;
+    // longest word within reach of a query word the trigrams cannot filter, six letters plus two edits
+    private static final int MAX_DELETE_LENGTH = 8;
+    private static final String[] NO_WORDS = new String[0];
+
+    @Autowired
+    private ProductRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String[]> words = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Set<String>> vocabularyByGram = new HashMap<>();
+    private final Map<String, Set<String>> vocabularyByDelete = new HashMap<>();
+
+    public void rebuild() {
+        List<ProductNameProjection> result = repository.searchAllNames();
+        lock.writeLock().lock();
+        try {
+            words.clear();
+            postings.clear();
+            vocabularyByGram.clear();
+            vocabularyByDelete.clear();
+            for (ProductNameProjection projection : result) {
+                add(projection.getId(), projection.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long id, String name) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            add(id, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Products having, for every word of the text, a word within {@link #maxDistance} edits of it,
+     * mapped to the sum of the smallest distance found for each query word.
+     */
+    public Map<Long, Integer> search(String text) {
+        String[] query = split(text);
+        Map<Long, Integer> result = new HashMap<>();
+        if (query.length == 0) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < query.length; i++) {
+                Map<Long, Integer> matches = match(query[i]);
+                if (i == 0) {
+                    result = matches;
+                } else {
+                    result.keySet().retainAll(matches.keySet());
+                    result.replaceAll((id, distance) -> distance + matches.get(id));
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Ids ordered by distance, then by relevance, where a name with fewer words is closer to the query,
+     * then by id.
+     */
+    public List<Long> rank(Map<Long, Integer> distances) {
+        List<Long> result = new ArrayList<>(distances.keySet());
+        lock.readLock().lock();
+        try {
+            result.sort(Comparator.<Long>comparingInt(distances::get)
+                    .thenComparingInt(id -> words.getOrDefault(id, NO_WORDS).length)
+                    .thenComparing(Comparator.naturalOrder()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Edits allowed for a query word: none up to 2 letters, one up to 5 letters and two beyond.
+     */
+    static int maxDistance(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return (word.length() <= 5) ? 1 : MAX_EDITS;
+    }
+
+    /**
+     * Levenshtein distance between a and b, or max + 1 as soon as it is known to be above max.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private Map<Long, Integer> match(String queryWord) {
+        int max = maxDistance(queryWord);
+        Map<Long, Integer> result = new HashMap<>();
+        for (String word : candidates(queryWord, max)) {
+            int distance = distance(queryWord, word, max);
+            if (distance > max) {
+                continue;
+            }
+            Postings list = postings.get(word);
+            for (int i = 0; i < list.size(); i++) {
+                result.merge(list.get(i), distance, Math::min);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Vocabulary words that may be within max edits of the query word. One edit changes at most three
+     * padded trigrams, so a match shares at least (trigrams - 3 * max) of them with the query word. When
+     * that bound is not positive, which happens for words of three and six letters, two words within max
+     * edits are found to share a string left by deleting at most max letters from each.
+     */
+    private Collection<String> candidates(String queryWord, int max) {
+        if (max == 0) {
+            return postings.containsKey(queryWord) ? List.of(queryWord) : List.of();
+        }
+        Set<String> queryGrams = grams(queryWord);
+        int threshold = queryGrams.size() - GRAM * max;
+        if (threshold <= 0) {
+            Set<String> result = new HashSet<>();
+            for (String delete : deletes(queryWord, max)) {
+                result.addAll(vocabularyByDelete.getOrDefault(delete, Set.of()));
+            }
+            return result;
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            for (String word : vocabularyByGram.getOrDefault(gram, Set.of())) {
+                shared.merge(word, 1, Integer::sum);
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() >= threshold) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private void add(Long id, String name) {
+        if (name == null) {
+            return;
+        }
+        String[] nameWords = split(name);
+        words.put(id, nameWords);
+        for (String word : nameWords) {
+            Postings list = postings.get(word);
+            if (list == null) {
+                list = new Postings();
+                postings.put(word, list);
+                for (String gram : grams(word)) {
+                    vocabularyByGram.computeIfAbsent(gram, x -> new HashSet<>()).add(word);
+                }
+                for (String delete : deletes(word)) {
+                    vocabularyByDelete.computeIfAbsent(delete, x -> new HashSet<>()).add(word);
+                }
+            }
+            list.add(id);
+        }
+    }
+
+    private void delete(Long id) {
+        String[] nameWords = words.remove(id);
+        if (nameWords == null) {
+            return;
+        }
+        for (String word : nameWords) {
+            Postings list = postings.get(word);
+            if (list == null) {
+                continue;
+            }
+            list.remove(id);
+            if (list.size() == 0) {
+                postings.remove(word);
+                for (String gram : grams(word)) {
+                    Set<String> vocabulary = vocabularyByGram.get(gram);
+                    vocabulary.remove(word);
+                    if (vocabulary.isEmpty()) {
+                        vocabularyByGram.remove(gram);
+                    }
+                }
+                for (String delete : deletes(word)) {
+                    Set<String> vocabulary = vocabularyByDelete.get(delete);
+                    vocabulary.remove(word);
+                    if (vocabulary.isEmpty()) {
+                        vocabularyByDelete.remove(delete);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String[] split(String text) {
+        String folded = ProductNameTrie.fold(text).strip();
+        return folded.isEmpty() ? NO_WORDS : folded.split(" ");
+    }
+
+    /**
+     * Deletion neighbourhood kept for a vocabulary word, empty for words too long to be reached from a
+     * query word that falls back on it.
+     */
+    private static Set<String> deletes(String word) {
+        return (word.length() <= MAX_DELETE_LENGTH) ? deletes(word, MAX_EDITS) : Set.of();
+    }
+
+    /**
+     * The word and every string left by deleting up to max of its letters.
+     */
+    private static Set<String> deletes(String word, int max) {
+        Set<String> result = new HashSet<>();
+        result.add(word);
+        Set<String> level = Set.of(word);
+        for (int n = 0; n < max; n++) {
+            Set<String> next = new HashSet<>();
+            for (String current : level) {
+                for (int i = 0; i < current.length(); i++) {
+                    next.add(current.substring(0, i) + current.substring(i + 1));
+                }
+            }
+            result.addAll(next);
+            level = next;
+        }
+        return result;
+    }
+
+    private static Set<String> grams(String word) {
+        String padded = PAD + word + PAD;
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= padded.length(); i++) {
+            result.add(padded.substring(i, i + GRAM));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,291 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.entities.Catalog;
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.projections.ProductVersionProjection;
+import com.devsuperior.dscommerce.repositories.CatalogRepository;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.util.CatalogVersion;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Applies committed product writes to every in-memory index. Transactions commit in version order but
+ * their callbacks may run in any order, so a write is skipped when a later version of the product is
+ * already indexed. The check and the updates of one product run under a lock picked by id among a fixed
+ * set, so writes of different products are indexed side by side.
+ * <p>
+ * The indexed version of each product lives in an array indexed by id, which is dense since it comes
+ * from a sequence: a deleted product keeps a slot marked deleted instead of an entry in a map.
+ * <p>
+ * Writes made on other nodes reach this one through the catalog row: every write bumps its version once
+ * committed, and each node polls it every search.index.sync-interval, comparing the version of every
+ * product with the indexed one when it moved. The {@link CatalogVersion} of the node advances after
+ * each applied write, so listing tags never run ahead of the indexes they are built from.
+ */
+@Component
+public class ProductIndexer {
+
+    private static final int STRIPES = 64;
+    private static final int SYNC_BATCH_SIZE = 1000;
+    private static final int NOT_INDEXED = -1;
+    private static final int DELETED = Integer.MAX_VALUE;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndexer.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductNameIndex nameIndex;
+
+    @Autowired
+    private ProductNameTrie nameTrie;
+
+    @Autowired
+    private ProductFuzzyIndex fuzzyIndex;
+
+    @Autowired
+    private ProductTextIndex textIndex;
+
+    @Autowired
+    private ProductPriceIndex priceIndex;
+
+    @Autowired
+    private ProductCategoryIndex categoryIndex;
+
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final ReadWriteLock versionsLock = new ReentrantReadWriteLock();
+    private int[] versions = newVersions(16);
+    private volatile long syncedVersion;
+
+    public ProductIndexer() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Builds every index from the database. The catalog version and the product versions are read
+     * first, so a write committed while the indexes load is found again by the next sync.
+     */
+    @PostConstruct
+    public void rebuild() {
+        long shared = sharedVersion();
+        List<ProductVersionProjection> current = productRepository.searchAllVersions();
+        nameIndex.rebuild();
+        nameTrie.rebuild();
+        fuzzyIndex.rebuild();
+        textIndex.rebuild();
+        priceIndex.rebuild();
+        categoryIndex.rebuild();
+        versionsLock.writeLock().lock();
+        try {
+            versions = newVersions(16);
+            for (ProductVersionProjection projection : current) {
+                int slot = BitSets.bit(projection.getId());
+                ensureCapacity(slot);
+                versions[slot] = version(projection.getVersion());
+            }
+        } finally {
+            versionsLock.writeLock().unlock();
+        }
+        syncedVersion = shared;
+    }
+
+    /**
+     * Pulls the writes made on other nodes once the catalog version moved: products that are new or
+     * whose version is ahead of the indexed one are read again, a batch at a time, and those gone from
+     * the database are removed. Only products indexed before the versions are read can be taken for
+     * deleted, so a product inserted here meanwhile is kept.
+     */
+    @Scheduled(fixedDelayString = "${search.index.sync-interval:5000}")
+    public void sync() {
+        long shared = sharedVersion();
+        if (shared == syncedVersion) {
+            return;
+        }
+        BitSet gone = indexedIds();
+        List<Long> stale = new ArrayList<>();
+        for (ProductVersionProjection projection : productRepository.searchAllVersions()) {
+            int slot = BitSets.bit(projection.getId());
+            gone.clear(slot);
+            if (indexedVersion(slot) < version(projection.getVersion())) {
+                stale.add(projection.getId());
+            }
+        }
+        for (int from = 0; from < stale.size(); from += SYNC_BATCH_SIZE) {
+            List<Long> batch = stale.subList(from, Math.min(from + SYNC_BATCH_SIZE, stale.size()));
+            for (Product product : productRepository.searchWithCategoriesByIds(batch)) {
+                put(product);
+            }
+        }
+        for (Long id : BitSets.toIds(gone)) {
+            remove(id);
+        }
+        syncedVersion = shared;
+        logger.info("Synced the product indexes to catalog version {}, {} products read, {} removed",
+                shared, stale.size(), gone.cardinality());
+    }
+
+    /**
+     * Bumps the catalog version so that the other nodes pick a committed write up on their next sync.
+     * Runs in a transaction of its own, also when called once another one committed, so the catalog row
+     * is locked only for the update and product writes never queue on it.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void publish() {
+        if (catalogRepository.incrementVersion(Catalog.ID) == 0) {
+            catalogRepository.save(new Catalog(Catalog.ID, 1L));
+        }
+    }
+
+    public void put(Long id, int version, String name, String description, Double price, Collection<Long> categoryIds) {
+        apply(id, version, () -> {
+            update("name", id, () -> nameIndex.put(id, name));
+            update("trie", id, () -> nameTrie.put(id, name));
+            update("fuzzy", id, () -> fuzzyIndex.put(id, name));
+            update("text", id, () -> textIndex.put(id, version, name, description));
+            update("price", id, () -> priceIndex.put(id, price));
+            update("category", id, () -> categoryIndex.put(id, categoryIds));
+        });
+    }
+
+    public void remove(Long id) {
+        apply(id, DELETED, () -> {
+            update("name", id, () -> nameIndex.remove(id));
+            update("trie", id, () -> nameTrie.remove(id));
+            update("fuzzy", id, () -> fuzzyIndex.remove(id));
+            update("text", id, () -> textIndex.remove(id));
+            update("price", id, () -> priceIndex.remove(id));
+            update("category", id, () -> categoryIndex.remove(id));
+        });
+    }
+
+    private void put(Product product) {
+        List<Long> categoryIds = product.getCategories().stream().map(Category::getId).toList();
+        put(product.getId(), version(product.getVersion()), product.getName(), product.getDescription(),
+                product.getPrice(), categoryIds);
+    }
+
+    private void apply(Long id, int version, Runnable updates) {
+        int slot = BitSets.bit(id);
+        Lock stripe = stripes[slot % STRIPES];
+        stripe.lock();
+        try {
+            if (indexedVersion(slot) >= version) {
+                return;
+            }
+            updates.run();
+            setIndexedVersion(slot, version);
+            catalogVersion.advance();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * The write is already committed, so a failing index is logged and left for the next rebuild rather
+     * than reported to the client or allowed to skip the other indexes.
+     */
+    private static void update(String index, Long id, Runnable update) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            logger.error("Failed to update the {} index for product {}", index, id, e);
+        }
+    }
+
+    private int indexedVersion(int slot) {
+        versionsLock.readLock().lock();
+        try {
+            return (slot < versions.length) ? versions[slot] : NOT_INDEXED;
+        } finally {
+            versionsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Slots are only written under the stripe lock of their product, so the shared lock is enough for
+     * the write itself and the exclusive one is taken only to grow the array.
+     */
+    private void setIndexedVersion(int slot, int version) {
+        versionsLock.readLock().lock();
+        try {
+            if (slot < versions.length) {
+                versions[slot] = version;
+                return;
+            }
+        } finally {
+            versionsLock.readLock().unlock();
+        }
+        versionsLock.writeLock().lock();
+        try {
+            ensureCapacity(slot);
+            versions[slot] = version;
+        } finally {
+            versionsLock.writeLock().unlock();
+        }
+    }
+
+    private BitSet indexedIds() {
+        versionsLock.readLock().lock();
+        try {
+            BitSet result = new BitSet(versions.length);
+            for (int slot = 0; slot < versions.length; slot++) {
+                if (versions[slot] != NOT_INDEXED && versions[slot] != DELETED) {
+                    result.set(slot);
+                }
+            }
+            return result;
+        } finally {
+            versionsLock.readLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot < versions.length) {
+            return;
+        }
+        int length = versions.length;
+        versions = Arrays.copyOf(versions, Math.max(slot + 1, length * 2));
+        Arrays.fill(versions, length, versions.length, NOT_INDEXED);
+    }
+
+    private long sharedVersion() {
+        return catalogRepository.searchVersion(Catalog.ID).orElse(0L);
+    }
+
+    private static int version(Integer version) {
+        return (version != null) ? version : 0;
+    }
+
+    private static int[] newVersions(int length) {
+        int[] result = new int[length];
+        Arrays.fill(result, NOT_INDEXED);
+        return result;
+    }
+}
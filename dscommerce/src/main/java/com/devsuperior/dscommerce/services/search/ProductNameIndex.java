@@ -0,0 +1,297 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.projections.ProductNameProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram inverted index of product names, kept in memory so that
+ * GET /products?name= can resolve the matching ids without a LIKE scan.
+ * Matching follows the old query: case-insensitive substring of the name.
+ * Names are also indexed by their single letters and letter pairs, so that
+ * queries shorter than a trigram are answered by one postings list too.
+ * A (name, id) ordered set serves keyset pages without sorting the matches.
+ */
+@Component
+public class ProductNameIndex {
+
+    private static final int GRAM = 3;
+    // below one candidate in this many products, picking the page among the candidates beats walking the order
+    private static final int SELECTIVE_RATIO = 16;
+
+    @Autowired
+    private ProductRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> names = new HashMap<>();
+    private final Map<Long, String> normalizedNames = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final NavigableSet<Key> ordered = new TreeSet<>();
+
+    public void rebuild() {
+        List<ProductNameProjection> result = repository.searchAllNames();
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            normalizedNames.clear();
+            postings.clear();
+            ordered.clear();
+            for (ProductNameProjection projection : result) {
+                add(projection.getId(), projection.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long id, String name) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            add(id, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the products whose name contains the given text, in ascending id order.
+     */
+    public List<Long> search(String text) {
+        String query = normalize(text);
+        lock.readLock().lock();
+        try {
+            if (query.isEmpty()) {
+                List<Long> result = new ArrayList<>(names.keySet());
+                Collections.sort(result);
+                return result;
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : grams(query, Math.min(query.length(), GRAM))) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(Postings::size));
+
+            List<Long> result = new ArrayList<>();
+            Postings smallest = lists.get(0);
+            for (int i = 0; i < smallest.size(); i++) {
+                long id = smallest.get(i);
+                if (containsAll(lists, id) && normalizedNames.get(id).contains(query)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The ids of {@link #search(String)} as a bitmap, to be combined with the other filters.
+     */
+    public BitSet candidates(String text) {
+        return BitSets.of(search(text));
+    }
+
+    /**
+     * Whether the ids returned by {@link #search(String)} can be ordered here
+     * instead of in the database.
+     */
+    public boolean canSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!order.getProperty().equals("id") && !order.getProperty().equals("name")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<Long> sort(List<Long> ids, Sort sort) {
+        if (sort.isUnsorted()) {
+            return ids;
+        }
+        Comparator<Long> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Long> next = order.getProperty().equals("id")
+                    ? Comparator.naturalOrder()
+                    : Comparator.comparing(names::get, Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = (comparator == null) ? next : comparator.thenComparing(next);
+        }
+        List<Long> result = new ArrayList<>(ids);
+        lock.readLock().lock();
+        try {
+            result.sort(comparator.thenComparing(Comparator.naturalOrder()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} ids among the candidates, null standing for every product, that come strictly
+     * after the (name, id) key, in (name, id) order. Names compare as Java strings, the same order as
+     * {@link #sort(List, Sort)}, so a cursor means the same wherever the page comes from.
+     */
+    public List<Long> searchAfter(BitSet candidates, String lastName, Long lastId, int limit) {
+        Key after = new Key(lastName, lastId);
+        lock.readLock().lock();
+        try {
+            if (candidates != null && (long) candidates.cardinality() * SELECTIVE_RATIO < ordered.size()) {
+                return selectAfter(candidates, after, limit);
+            }
+            List<Long> result = new ArrayList<>();
+            for (Key key : ordered.tailSet(after, false)) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (candidates == null || BitSets.contains(candidates, key.id)) {
+                    result.add(key.id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Long id, String name) {
+        if (name == null) {
+            return;
+        }
+        String normalized = normalize(name);
+        names.put(id, name);
+        normalizedNames.put(id, normalized);
+        ordered.add(new Key(name, id));
+        for (String gram : allGrams(normalized)) {
+            postings.computeIfAbsent(gram, x -> new Postings()).add(id);
+        }
+    }
+
+    private void delete(Long id) {
+        String name = names.remove(id);
+        if (name != null) {
+            ordered.remove(new Key(name, id));
+        }
+        String normalized = normalizedNames.remove(id);
+        if (normalized == null) {
+            return;
+        }
+        for (String gram : allGrams(normalized)) {
+            Postings list = postings.get(gram);
+            if (list != null) {
+                list.remove(id);
+                if (list.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * The first {@code limit} candidates after the key, kept in a bounded max-heap so that a page costs
+     * O(candidates log limit) instead of a sort of every candidate.
+     */
+    private List<Long> selectAfter(BitSet candidates, Key after, int limit) {
+        PriorityQueue<Key> heap = new PriorityQueue<>(Comparator.reverseOrder());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            String name = names.get((long) i);
+            if (name == null) {
+                continue;
+            }
+            Key key = new Key(name, i);
+            if (key.compareTo(after) <= 0) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(key);
+            } else if (key.compareTo(heap.peek()) < 0) {
+                heap.poll();
+                heap.add(key);
+            }
+        }
+        List<Key> keys = new ArrayList<>(heap);
+        Collections.sort(keys);
+        List<Long> result = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            result.add(key.id);
+        }
+        return result;
+    }
+
+    private static boolean containsAll(List<Postings> lists, long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String text, int length) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + length <= text.length(); i++) {
+            result.add(text.substring(i, i + length));
+        }
+        return result;
+    }
+
+    private static Set<String> allGrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            result.addAll(grams(text, length));
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text.toUpperCase(Locale.ROOT);
+    }
+
+    private static final class Key implements Comparable<Key> {
+
+        private final String name;
+        private final long id;
+
+        private Key(String name, long id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = name.compareTo(other.name);
+            return (result != 0) ? result : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.projections.ProductNameProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Radix tree of folded product names for the search box suggestions. Every name is stored once
+ * from each of its words, so "gam" finds "PC Gamer" and "eletro" finds "Eletrônicos". Nodes
+ * with a single child and no product are merged into their child, and children are kept sorted,
+ * so a lookup walks the prefix and then reads the first matches in alphabetical order.
+ */
+@Component
+public class ProductNameTrie {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    @Autowired
+    private ProductRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> names = new HashMap<>();
+    private Node root = new Node("");
+
+    public void rebuild() {
+        List<ProductNameProjection> result = repository.searchAllNames();
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            root = new Node("");
+            for (ProductNameProjection projection : result) {
+                add(projection.getId(), projection.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long id, String name) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            add(id, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} products with a word starting with the prefix, ignoring case and accents,
+     * in alphabetical order of the matching text. Each product comes once, with its original name.
+     */
+    public Map<Long, String> suggest(String prefix, int limit) {
+        String key = fold(prefix).stripLeading();
+        Map<Long, String> result = new LinkedHashMap<>();
+        if (key.isEmpty()) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node != null) {
+                collect(node, result, limit);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower case without accents and with single spaces, so "  Eletrônicos " and "eletronicos" fold alike.
+     */
+    static String fold(String text) {
+        String result = Normalizer.normalize(text, Normalizer.Form.NFD);
+        result = MARKS.matcher(result).replaceAll("");
+        result = SPACES.matcher(result).replaceAll(" ");
+        return result.toLowerCase(Locale.ROOT);
+    }
+
+    private void add(Long id, String name) {
+        if (name == null) {
+            return;
+        }
+        names.put(id, name);
+        for (String key : keys(name)) {
+            insert(key, id);
+        }
+    }
+
+    private void delete(Long id) {
+        String name = names.remove(id);
+        if (name == null) {
+            return;
+        }
+        for (String key : keys(name)) {
+            delete(root, key, 0, id);
+        }
+    }
+
+    private static Set<String> keys(String name) {
+        String folded = fold(name).strip();
+        Set<String> result = new HashSet<>();
+        if (folded.isEmpty()) {
+            return result;
+        }
+        result.add(folded);
+        for (int i = folded.indexOf(' '); i >= 0; i = folded.indexOf(' ', i + 1)) {
+            result.add(folded.substring(i + 1));
+        }
+        return result;
+    }
+
+    private void insert(String key, long id) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int pos = node.childIndex(key.charAt(i));
+            if (pos < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.ids = new long[]{id};
+                node.insertChild(-pos - 1, leaf);
+                return;
+            }
+            Node child = node.children[pos];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                node.children[pos] = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        node.addId(id);
+    }
+
+    private static void delete(Node node, String key, int i, long id) {
+        if (i == key.length()) {
+            node.removeId(id);
+            return;
+        }
+        int pos = node.childIndex(key.charAt(i));
+        if (pos < 0) {
+            return;
+        }
+        Node child = node.children[pos];
+        if (!key.startsWith(child.label, i)) {
+            return;
+        }
+        delete(child, key, i + child.label.length(), id);
+        if (child.ids.length == 0 && child.children.length == 0) {
+            node.removeChild(pos);
+        } else if (child.ids.length == 0 && child.children.length == 1) {
+            Node grandchild = child.children[0];
+            grandchild.label = child.label + grandchild.label;
+            node.children[pos] = grandchild;
+        }
+    }
+
+    /**
+     * Node under which every key starts with the prefix, or null when no key does.
+     */
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int pos = node.childIndex(prefix.charAt(i));
+            if (pos < 0) {
+                return null;
+            }
+            Node child = node.children[pos];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private boolean collect(Node node, Map<Long, String> result, int limit) {
+        for (long id : node.ids) {
+            if (result.size() >= limit) {
+                return true;
+            }
+            result.putIfAbsent(id, names.get(id));
+        }
+        for (Node child : node.children) {
+            if (collect(child, result, limit)) {
+                return true;
+            }
+        }
+        return result.size() >= limit;
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int max = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final long[] NO_IDS = new long[0];
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private long[] ids = NO_IDS;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Position of the child whose label starts with c, or (-insertion point - 1) when there is none.
+         */
+        int childIndex(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char first = children[mid].label.charAt(0);
+                if (first < c) {
+                    low = mid + 1;
+                } else if (first > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -low - 1;
+        }
+
+        void insertChild(int pos, Node child) {
+            Node[] result = new Node[children.length + 1];
+            System.arraycopy(children, 0, result, 0, pos);
+            result[pos] = child;
+            System.arraycopy(children, pos, result, pos + 1, children.length - pos);
+            children = result;
+        }
+
+        void removeChild(int pos) {
+            Node[] result = new Node[children.length - 1];
+            System.arraycopy(children, 0, result, 0, pos);
+            System.arraycopy(children, pos + 1, result, pos, children.length - pos - 1);
+            children = (result.length == 0) ? NO_CHILDREN : result;
+        }
+
+        void addId(long id) {
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            long[] result = new long[ids.length + 1];
+            System.arraycopy(ids, 0, result, 0, pos);
+            result[pos] = id;
+            System.arraycopy(ids, pos, result, pos + 1, ids.length - pos);
+            ids = result;
+        }
+
+        void removeId(long id) {
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos < 0) {
+                return;
+            }
+            long[] result = new long[ids.length - 1];
+            System.arraycopy(ids, 0, result, 0, pos);
+            System.arraycopy(ids, pos + 1, result, pos, ids.length - pos - 1);
+            ids = (result.length == 0) ? NO_IDS : result;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.projections.ProductPriceProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Product prices kept in memory as two parallel primitive arrays ordered by (price, id), so that
+ * GET /products can filter by a price range with two binary searches and walk products in price
+ * order without sorting. Range results are bitmaps of ids, ready to be combined with the
+ * {@link ProductCategoryIndex} bitmaps. The price of each product is also kept in an array indexed
+ * by id, ids being dense sequence values, to find its place in the order.
+ */
+@Component
+public class ProductPriceIndex {
+
+    private static final double NO_PRICE = Double.NaN;
+    // below one candidate in this many products, sorting the candidates beats walking the whole order
+    private static final int SELECTIVE_RATIO = 16;
+
+    @Autowired
+    private ProductRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private double[] pricesById = newPricesById(16);
+    private double[] prices = new double[16];
+    private long[] ids = new long[16];
+    private int size;
+
+    public void rebuild() {
+        List<ProductPriceProjection> result = repository.searchAllPrices();
+        lock.writeLock().lock();
+        try {
+            pricesById = newPricesById(16);
+            size = 0;
+            for (ProductPriceProjection projection : result) {
+                add(projection.getId(), projection.getPrice());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long id, Double price) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            add(id, price);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Products priced between min and max, both inclusive. A null bound leaves that side open.
+     */
+    public BitSet range(Double min, Double max) {
+        BitSet result = new BitSet();
+        lock.readLock().lock();
+        try {
+            int from = (min == null) ? 0 : lowerBound(min, Long.MIN_VALUE);
+            int to = (max == null) ? size : lowerBound(max, Long.MAX_VALUE);
+            for (int i = from; i < to; i++) {
+                result.set(Math.toIntExact(ids[i]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Whether the sort asks for price order only, which {@link #sorted} can serve.
+     */
+    public boolean canSort(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        return orders.size() == 1 && orders.get(0).getProperty().equals("price");
+    }
+
+    /**
+     * Up to {@code limit} candidate ids in price order, skipping the first {@code offset}. Equal prices
+     * keep id order. A null candidate set stands for every product.
+     */
+    public List<Long> sorted(BitSet candidates, Sort.Direction direction, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            if (candidates != null && (long) candidates.cardinality() * SELECTIVE_RATIO < size) {
+                return sortCandidates(candidates, direction, offset, limit);
+            }
+            List<Long> result = new ArrayList<>(Math.min(limit, 64));
+            long skipped = 0;
+            for (int n = 0; n < size && result.size() < limit; n++) {
+                int i = direction.isAscending() ? n : size - 1 - n;
+                if (candidates != null && !BitSets.contains(candidates, ids[i])) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    result.add(ids[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Few candidates are put in order by their positions in the price order, found by binary search,
+     * so a page costs O(k log n) instead of a walk over every product.
+     */
+    private List<Long> sortCandidates(BitSet candidates, Sort.Direction direction, long offset, int limit) {
+        int[] positions = new int[candidates.cardinality()];
+        int count = 0;
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            if (id < pricesById.length && !Double.isNaN(pricesById[id])) {
+                positions[count++] = lowerBound(pricesById[id], id);
+            }
+        }
+        Arrays.sort(positions, 0, count);
+        int from = (int) Math.min(offset, count);
+        int to = (int) Math.min(from + (long) limit, count);
+        List<Long> result = new ArrayList<>(to - from);
+        for (int n = from; n < to; n++) {
+            result.add(ids[positions[direction.isAscending() ? n : count - 1 - n]]);
+        }
+        return result;
+    }
+
+    private void add(Long id, Double price) {
+        if (price == null || price.isNaN()) {
+            return;
+        }
+        int pos = lowerBound(price, id);
+        if (size == ids.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(prices, pos, prices, pos + 1, size - pos);
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        prices[pos] = price;
+        ids[pos] = id;
+        size++;
+        int slot = Math.toIntExact(id);
+        ensureCapacity(slot);
+        pricesById[slot] = price;
+    }
+
+    private void delete(Long id) {
+        int slot = Math.toIntExact(id);
+        if (slot >= pricesById.length || Double.isNaN(pricesById[slot])) {
+            return;
+        }
+        int pos = lowerBound(pricesById[slot], id);
+        pricesById[slot] = NO_PRICE;
+        System.arraycopy(prices, pos + 1, prices, pos, size - pos - 1);
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot < pricesById.length) {
+            return;
+        }
+        int capacity = Math.max(slot + 1, pricesById.length * 2);
+        int previous = pricesById.length;
+        pricesById = Arrays.copyOf(pricesById, capacity);
+        Arrays.fill(pricesById, previous, capacity, NO_PRICE);
+    }
+
+    private static double[] newPricesById(int capacity) {
+        double[] result = new double[capacity];
+        Arrays.fill(result, NO_PRICE);
+        return result;
+    }
+
+    /**
+     * First position whose (price, id) is not below the given key.
+     */
+    private int lowerBound(double price, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Double.compare(prices[mid], price);
+            if (cmp < 0 || (cmp == 0 && ids[mid] < id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,67 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.util.MetricsSource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of the product searches, kept apart for exact, fuzzy and full-text mode so that the slower
+ * lookups do not hide in the exact ones.
+ */
+@Component
+public class ProductSearchMetrics implements MetricsSource {
+
+    private final Latency exact = new Latency();
+    private final Latency fuzzy = new Latency();
+    private final Latency fullText = new Latency();
+
+    public void recordExact(long nanos) {
+        exact.record(nanos);
+    }
+
+    public void recordFuzzy(long nanos) {
+        fuzzy.record(nanos);
+    }
+
+    public void recordFullText(long nanos) {
+        fullText.record(nanos);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "search.products";
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        exact.putMetrics("exact", metrics);
+        fuzzy.putMetrics("fuzzy", metrics);
+        fullText.putMetrics("fullText", metrics);
+        return metrics;
+    }
+
+    private static class Latency {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long elapsed) {
+            count.increment();
+            nanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+
+        void putMetrics(String prefix, Map<String, Number> metrics) {
+            long total = count.sum();
+            metrics.put(prefix + ".searches", total);
+            metrics.put(prefix + ".meanMillis", (total == 0) ? 0.0 : nanos.sum() / 1e6 / total);
+            metrics.put(prefix + ".maxMillis", maxNanos.get() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.projections.ProductTextProjection;
+import com.devsuperior.dscommerce.projections.ProductVersionProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full-text index over product name and description, scored with BM25F: term frequencies of both fields
+ * are normalized by field length, weighted so that a name hit counts more than a description hit, and
+ * saturated once per term. Text goes through {@link PortugueseAnalyzer}.
+ * <p>
+ * Per product data lives in arrays indexed by id, which is dense since it comes from a sequence, and
+ * each term keeps a postings list of ids with the frequency in each field packed in one int.
+ * <p>
+ * With search.text-index.path set, the index is saved to that file periodically and on shutdown, with
+ * the version of every product it holds as checkpoint. At startup the file is loaded and only the
+ * products whose version changed since are read and analyzed again, instead of every description. The
+ * file belongs to one database: point it elsewhere when the database is recreated.
+ */
+@Component
+public class ProductTextIndex {
+
+    public static final String RELEVANCE = "relevance";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    private static final int MAX_FREQUENCY = 0xFFFF;
+    private static final int SEGMENT_MAGIC = 0x50545849;
+    private static final int SEGMENT_FORMAT = 1;
+    private static final int REPLAY_BATCH_SIZE = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductTextIndex.class);
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Value("${search.text-index.path:}")
+    private String segmentPath;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, TermPostings> postings = new HashMap<>();
+    private String[][] terms = new String[16][];
+    private int[] nameLengths = new int[16];
+    private int[] descriptionLengths = new int[16];
+    private int[] versions = new int[16];
+    private long totalNameLength;
+    private long totalDescriptionLength;
+    private int size;
+    private final Lock saveLock = new ReentrantLock();
+    private long modifications;
+    private volatile long savedModifications;
+
+    public void rebuild() {
+        if (StringUtils.hasText(segmentPath) && Files.exists(Path.of(segmentPath))) {
+            try {
+                load(Path.of(segmentPath));
+                replay();
+                return;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not load the text index from {}, rebuilding it", segmentPath, e);
+            }
+        }
+        List<ProductTextProjection> result = repository.searchAllTexts();
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (ProductTextProjection projection : result) {
+                add(projection.getId(), version(projection.getVersion()), projection.getName(),
+                        projection.getDescription());
+            }
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long id, int version, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            add(id, version, name, description);
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the sort asks for relevance order, which only a text search can give.
+     */
+    public boolean canSort(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        return orders.size() == 1 && orders.get(0).getProperty().equals(RELEVANCE);
+    }
+
+    /**
+     * The limit products with the highest BM25F score among those containing at least one term of the
+     * text and, unless the filter is null, in it: by descending score, ties in id order. The postings of
+     * the query terms are merged by id, so each product is scored once and only the best are kept.
+     */
+    public Ranking search(String text, BitSet filter, int limit) {
+        Set<String> query = new LinkedHashSet<>(PortugueseAnalyzer.analyze(text));
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return new Ranking(new ArrayList<>(), 0);
+            }
+            double averageName = Math.max(1.0, (double) totalNameLength / size);
+            double averageDescription = Math.max(1.0, (double) totalDescriptionLength / size);
+            List<TermPostings> lists = new ArrayList<>();
+            for (String term : query) {
+                TermPostings list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            double[] idfs = new double[lists.size()];
+            for (int t = 0; t < idfs.length; t++) {
+                int n = lists.get(t).size();
+                idfs[t] = Math.log(1 + (size - n + 0.5) / (n + 0.5));
+            }
+
+            int[] cursors = new int[lists.size()];
+            TopScores top = new TopScores(limit);
+            int total = 0;
+            while (true) {
+                long id = Long.MAX_VALUE;
+                for (int t = 0; t < cursors.length; t++) {
+                    if (cursors[t] < lists.get(t).size()) {
+                        id = Math.min(id, lists.get(t).id(cursors[t]));
+                    }
+                }
+                if (id == Long.MAX_VALUE) {
+                    break;
+                }
+                int slot = (int) id;
+                double score = 0.0;
+                for (int t = 0; t < cursors.length; t++) {
+                    TermPostings list = lists.get(t);
+                    int i = cursors[t];
+                    if (i < list.size() && list.id(i) == id) {
+                        double tf = NAME_WEIGHT * list.nameFrequency(i)
+                                / (1 - B + B * nameLengths[slot] / averageName)
+                                + DESCRIPTION_WEIGHT * list.descriptionFrequency(i)
+                                / (1 - B + B * descriptionLengths[slot] / averageDescription);
+                        score += idfs[t] * tf / (K1 + tf);
+                        cursors[t]++;
+                    }
+                }
+                if (filter == null || BitSets.contains(filter, id)) {
+                    total++;
+                    top.offer(id, score);
+                }
+            }
+            return new Ranking(top.drain(), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index to search.text-index.path, through a temporary file so that a crash never leaves
+     * a partial segment behind. Does nothing when the path is not set or nothing changed since. The index
+     * is serialized to memory under the read lock and written to disk after releasing it, so writers wait
+     * for the copy but not for the disk, and saves run one at a time so that the one at shutdown cannot
+     * overlap a scheduled one.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${search.text-index.save-interval:300000}")
+    public void save() {
+        if (!StringUtils.hasText(segmentPath)) {
+            return;
+        }
+        Path path = Path.of(segmentPath).toAbsolutePath();
+        saveLock.lock();
+        try {
+            ByteArrayOutputStream segment = new ByteArrayOutputStream();
+            long saving;
+            lock.readLock().lock();
+            try {
+                saving = modifications;
+                if (saving == savedModifications) {
+                    return;
+                }
+                try (DataOutputStream out = new DataOutputStream(segment)) {
+                    write(out);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temporary)) {
+                    segment.writeTo(out);
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            savedModifications = saving;
+        } catch (IOException e) {
+            logger.warn("Could not save the text index to {}", path, e);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Long id, int version, String name, String description) {
+        int slot = Math.toIntExact(id);
+        List<String> nameTerms = PortugueseAnalyzer.analyze(name);
+        List<String> descriptionTerms = PortugueseAnalyzer.analyze(description);
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String term : nameTerms) {
+            frequencies.merge(term, 1 << 16, (a, b) -> (a >>> 16 == MAX_FREQUENCY) ? a : a + b);
+        }
+        for (String term : descriptionTerms) {
+            frequencies.merge(term, 1, (a, b) -> ((a & MAX_FREQUENCY) == MAX_FREQUENCY) ? a : a + b);
+        }
+
+        ensureCapacity(slot);
+        String[] documentTerms = new String[frequencies.size()];
+        int n = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            TermPostings list = postings.computeIfAbsent(entry.getKey(), x -> new TermPostings());
+            list.add(id, entry.getValue());
+            documentTerms[n++] = entry.getKey();
+        }
+        terms[slot] = documentTerms;
+        versions[slot] = version;
+        nameLengths[slot] = nameTerms.size();
+        descriptionLengths[slot] = descriptionTerms.size();
+        totalNameLength += nameTerms.size();
+        totalDescriptionLength += descriptionTerms.size();
+        size++;
+    }
+
+    private void delete(Long id) {
+        int slot = Math.toIntExact(id);
+        if (slot >= terms.length || terms[slot] == null) {
+            return;
+        }
+        for (String term : terms[slot]) {
+            TermPostings list = postings.get(term);
+            list.remove(id);
+            if (list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+        totalNameLength -= nameLengths[slot];
+        totalDescriptionLength -= descriptionLengths[slot];
+        terms[slot] = null;
+        versions[slot] = 0;
+        nameLengths[slot] = 0;
+        descriptionLengths[slot] = 0;
+        size--;
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot < terms.length) {
+            return;
+        }
+        int capacity = Math.max(slot + 1, terms.length * 2);
+        terms = Arrays.copyOf(terms, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    private void clear() {
+        postings.clear();
+        terms = new String[16][];
+        nameLengths = new int[16];
+        descriptionLengths = new int[16];
+        versions = new int[16];
+        totalNameLength = 0;
+        totalDescriptionLength = 0;
+        size = 0;
+    }
+
+    /**
+     * Brings a loaded segment up to date: products gone from the database are dropped, and those that
+     * are new or whose version differs from the checkpoint are read again, a batch at a time.
+     */
+    private void replay() {
+        List<ProductVersionProjection> current = repository.searchAllVersions();
+        List<Long> stale = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            BitSet present = new BitSet();
+            for (ProductVersionProjection projection : current) {
+                int slot = Math.toIntExact(projection.getId());
+                present.set(slot);
+                if (slot >= terms.length || terms[slot] == null || versions[slot] != version(projection.getVersion())) {
+                    stale.add(projection.getId());
+                }
+            }
+            for (int slot = 0; slot < terms.length; slot++) {
+                if (terms[slot] != null && !present.get(slot)) {
+                    delete((long) slot);
+                }
+            }
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (int from = 0; from < stale.size(); from += REPLAY_BATCH_SIZE) {
+            List<Long> batch = stale.subList(from, Math.min(from + REPLAY_BATCH_SIZE, stale.size()));
+            for (ProductTextProjection projection : repository.searchTextsByIds(batch)) {
+                put(projection.getId(), version(projection.getVersion()), projection.getName(), projection.getDescription());
+            }
+        }
+        logger.info("Loaded the text index from {}, {} products replayed", segmentPath, stale.size());
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        Map<String, Integer> termNumbers = new HashMap<>();
+        out.writeInt(SEGMENT_MAGIC);
+        out.writeInt(SEGMENT_FORMAT);
+        out.writeInt(postings.size());
+        for (Map.Entry<String, TermPostings> entry : postings.entrySet()) {
+            termNumbers.put(entry.getKey(), termNumbers.size());
+            TermPostings list = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeInt(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                out.writeLong(list.ids[i]);
+                out.writeInt(list.frequencies[i]);
+            }
+        }
+        out.writeInt(size);
+        for (int slot = 0; slot < terms.length; slot++) {
+            if (terms[slot] == null) {
+                continue;
+            }
+            out.writeInt(slot);
+            out.writeInt(versions[slot]);
+            out.writeInt(nameLengths[slot]);
+            out.writeInt(descriptionLengths[slot]);
+            out.writeInt(terms[slot].length);
+            for (String term : terms[slot]) {
+                out.writeInt(termNumbers.get(term));
+            }
+        }
+    }
+
+    private void load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SEGMENT_MAGIC || in.readInt() != SEGMENT_FORMAT) {
+                throw new IOException("Not a text index segment of format " + SEGMENT_FORMAT);
+            }
+            lock.writeLock().lock();
+            try {
+                clear();
+                String[] termTable = new String[in.readInt()];
+                for (int t = 0; t < termTable.length; t++) {
+                    termTable[t] = in.readUTF();
+                    TermPostings list = new TermPostings();
+                    int n = in.readInt();
+                    for (int i = 0; i < n; i++) {
+                        list.add(in.readLong(), in.readInt());
+                    }
+                    postings.put(termTable[t], list);
+                }
+                int documents = in.readInt();
+                for (int d = 0; d < documents; d++) {
+                    int slot = in.readInt();
+                    ensureCapacity(slot);
+                    versions[slot] = in.readInt();
+                    nameLengths[slot] = in.readInt();
+                    descriptionLengths[slot] = in.readInt();
+                    String[] documentTerms = new String[in.readInt()];
+                    for (int t = 0; t < documentTerms.length; t++) {
+                        documentTerms[t] = termTable[in.readInt()];
+                    }
+                    terms[slot] = documentTerms;
+                    totalNameLength += nameLengths[slot];
+                    totalDescriptionLength += descriptionLengths[slot];
+                    size++;
+                }
+                savedModifications = modifications;
+            } catch (IOException | RuntimeException e) {
+                clear();
+                throw e;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static int version(Integer version) {
+        return (version != null) ? version : 0;
+    }
+
+    /**
+     * Sorted ids of the products containing a term, with the name frequency in the high 16 bits and the
+     * description frequency in the low 16 bits of the matching int.
+     */
+    private static class TermPostings {
+
+        private long[] ids = new long[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long id(int index) {
+            return ids[index];
+        }
+
+        int nameFrequency(int index) {
+            return frequencies[index] >>> 16;
+        }
+
+        int descriptionFrequency(int index) {
+            return frequencies[index] & MAX_FREQUENCY;
+        }
+
+        void add(long id, int frequency) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                frequencies[pos] = frequency;
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            System.arraycopy(frequencies, pos, frequencies, pos + 1, size - pos);
+            ids[pos] = id;
+            frequencies[pos] = frequency;
+            size++;
+        }
+
+        void remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            System.arraycopy(frequencies, pos + 1, frequencies, pos, size - pos - 1);
+            size--;
+        }
+    }
+}
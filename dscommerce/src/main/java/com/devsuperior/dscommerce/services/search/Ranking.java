@@ -0,0 +1,25 @@
+package com.devsuperior.dscommerce.services.search;
+
+import java.util.List;
+
+/**
+ * The best ranked ids of a search, best first, with the number of products that matched in all.
+ */
+public class Ranking {
+
+    private final List<Long> ids;
+    private final int total;
+
+    public Ranking(List<Long> ids, int total) {
+        this.ids = ids;
+        this.total = total;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,99 @@
+package com.devsuperior.dscommerce.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The limit highest scored ids seen, ties in id order, kept in a min-heap over primitive arrays whose
+ * root is the worst id kept. Offering an id costs O(log limit) and nothing is boxed until the result.
+ */
+class TopScores {
+
+    private final int limit;
+    private long[] ids;
+    private double[] scores;
+    private int size;
+
+    TopScores(int limit) {
+        this.limit = limit;
+        this.ids = new long[Math.max(1, Math.min(limit, 16))];
+        this.scores = new double[ids.length];
+    }
+
+    void offer(long id, double score) {
+        if (size < limit) {
+            if (size == ids.length) {
+                int capacity = (int) Math.min(limit, 2L * size);
+                ids = Arrays.copyOf(ids, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (limit > 0 && worse(ids[0], scores[0], id, score)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * The ids kept, best first. Empties the heap.
+     */
+    List<Long> drain() {
+        Long[] result = new Long[size];
+        while (size > 0) {
+            result[size - 1] = ids[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(ids[index], scores[index], ids[parent], scores[parent])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && worse(ids[left], scores[left], ids[worst], scores[worst])) {
+                worst = left;
+            }
+            if (right < size && worse(ids[right], scores[right], ids[worst], scores[worst])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    private static boolean worse(long id, double score, long otherId, double otherScore) {
+        int result = Double.compare(score, otherScore);
+        return (result != 0) ? result < 0 : id > otherId;
+    }
+}
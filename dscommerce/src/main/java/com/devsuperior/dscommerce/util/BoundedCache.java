@@ -0,0 +1,226 @@
+package com.devsuperior.dscommerce.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Size-capped LRU cache whose entries also expire, after a fixed time to live or at a given instant.
+ * Loaders run outside the lock, so a slow load never blocks readers of other keys.
+ * <p>
+ * Every {@link #remove(Object)} bumps an invalidation generation for the key. A loader takes the
+ * generation before reading and its result is dropped if the key was invalidated meanwhile, so a value
+ * read just before a write commits is not cached again after the write evicted it. Generations are
+ * striped by key hash: a collision only drops a put that would have been safe.
+ */
+public class BoundedCache<K, V> implements MetricsSource {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private volatile BiConsumer<? super K, ? super V> evictionListener = (key, value) -> { };
+
+    public BoundedCache(String name, int maxSize, Duration ttl) {
+        this(name, maxSize, ttl, Clock.systemUTC());
+    }
+
+    public BoundedCache(String name, int maxSize, Duration ttl, Clock clock) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(K key) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evicted(key, entry);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long generation = generation(key);
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                putIfNotInvalidated(key, value, generation);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * To be taken before loading a value that will be cached with {@link #putIfNotInvalidated}.
+     */
+    public long generation(K key) {
+        synchronized (entries) {
+            return generations[stripe(key)];
+        }
+    }
+
+    /**
+     * Caches a loaded value unless the key was removed since the generation was taken.
+     *
+     * @return whether the value was cached
+     */
+    public boolean putIfNotInvalidated(K key, V value, long generation) {
+        synchronized (entries) {
+            if (generations[stripe(key)] != generation) {
+                return false;
+            }
+            put(key, value, clock.millis() + ttlMillis);
+            return true;
+        }
+    }
+
+    public V put(K key, V value) {
+        return put(key, value, clock.millis() + ttlMillis);
+    }
+
+    public V put(K key, V value, Instant expiresAt) {
+        return put(key, value, expiresAt.toEpochMilli());
+    }
+
+    /**
+     * Like {@link #get(Object)} != null, without counting a hit or a miss.
+     */
+    public boolean containsKey(K key) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            return entry != null && entry.expiresAt > now;
+        }
+    }
+
+    public V remove(K key) {
+        synchronized (entries) {
+            generations[stripe(key)]++;
+            Entry<V> entry = entries.remove(key);
+            return (entry != null) ? entry.value : null;
+        }
+    }
+
+    /**
+     * Drops every expired entry, so that keys nobody reads again do not hold memory until pushed out by size.
+     */
+    public int sweep() {
+        long now = clock.millis();
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, Entry<V>> next = it.next();
+                if (next.getValue().expiresAt <= now) {
+                    it.remove();
+                    evicted(next.getKey(), next.getValue());
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Called, under the cache lock, for every entry dropped because it expired or the cache was full.
+     */
+    public void setEvictionListener(BiConsumer<? super K, ? super V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            for (int i = 0; i < generations.length; i++) {
+                generations[i]++;
+            }
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return name;
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("size", size());
+        metrics.put("hits", getHits());
+        metrics.put("misses", getMisses());
+        metrics.put("evictions", getEvictions());
+        return metrics;
+    }
+
+    private V put(K key, V value, long expiresAt) {
+        synchronized (entries) {
+            Entry<V> previous = entries.put(key, new Entry<>(value, expiresAt));
+            Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                Map.Entry<K, Entry<V>> eldest = it.next();
+                it.remove();
+                evicted(eldest.getKey(), eldest.getValue());
+            }
+            return (previous != null) ? previous.value : null;
+        }
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private void evicted(K key, Entry<V> entry) {
+        evictions.increment();
+        evictionListener.accept(key, entry.value);
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
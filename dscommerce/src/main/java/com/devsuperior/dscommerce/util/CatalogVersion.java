@@ -0,0 +1,28 @@
+package com.devsuperior.dscommerce.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generation of the catalog as this node serves it, for responses built from many products such as
+ * listing pages. It advances only once a write, made here or pulled from another node, is applied to
+ * the in-memory indexes those responses are built from, so a tag never names content the node does not
+ * serve yet. Tags are node local: they carry an epoch drawn at startup, and a revalidation that reaches
+ * another node is answered with the full response.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36);
+    private final AtomicLong generation = new AtomicLong();
+
+    public void advance() {
+        generation.incrementAndGet();
+    }
+
+    public String eTag(String resource) {
+        return "\"" + resource + "-" + epoch + "-" + generation.get() + "\"";
+    }
+}
@@ -2,6 +2,7 @@ package com.devsuperior.dscommerce.util;
 
 import org.hibernate.annotations.Comment;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Component;
@@ -15,4 +16,27 @@ public class CustomUserUtil {
         return jwtPrincipal.getClaim("username");
     }
 
+    public String getLoggedName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Jwt jwtPrincipal = (Jwt) authentication.getPrincipal();
+        return jwtPrincipal.getClaim("name");
+    }
+
+    public Long getLoggedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Jwt jwtPrincipal = (Jwt) authentication.getPrincipal();
+        Object userId = jwtPrincipal.getClaim("user_id");
+        return (userId instanceof Number number) ? number.longValue() : null;
+    }
+
+    public boolean loggedUserHasRole(String roleName) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (authority.getAuthority().equals(roleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
@@ -0,0 +1,11 @@
+package com.devsuperior.dscommerce.util;
+
+import java.util.Map;
+
+public interface MetricsSource {
+
+    String getMetricsName();
+
+    Map<String, Number> getMetrics();
+
+}
@@ -0,0 +1,135 @@
+package com.devsuperior.dscommerce.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * One token bucket per key, holding up to capacity tokens and refilling one token per interval.
+ * Each bucket is a single timestamp, the instant it will be full again, advanced with a CAS, so
+ * callers never take a lock unless they are the first to see a key. A bucket that has refilled
+ * completely carries no state and is dropped by {@link #sweep()}.
+ * <p>
+ * Once maxKeys buckets are tracked, a new key first sweeps the full buckets and, if there are none,
+ * evicts the buckets closest to full, a sixteenth of maxKeys at a time. Those are the keys that have
+ * been idle the longest, and evicting them gives back at most the tokens they were about to refill.
+ */
+public class TokenBucketRateLimiter<K> implements MetricsSource {
+
+    private final String name;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final int evictionBatch;
+    private final LongSupplier nanoTime;
+
+    private final ConcurrentHashMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TokenBucketRateLimiter(String name, int capacity, Duration interval, int maxKeys) {
+        this(name, capacity, interval, maxKeys, System::nanoTime);
+    }
+
+    public TokenBucketRateLimiter(String name, int capacity, Duration interval, int maxKeys, LongSupplier nanoTime) {
+        if (capacity < 1 || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Rate limit " + name + " needs a positive capacity and interval");
+        }
+        this.name = name;
+        this.intervalNanos = interval.toNanos();
+        this.burstNanos = intervalNanos * capacity;
+        this.maxKeys = maxKeys;
+        this.evictionBatch = Math.max(1, maxKeys / 16);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     *
+     * @return 0 when a token was taken, otherwise the nanoseconds until one will be available
+     */
+    public long tryAcquire(K key) {
+        if (key == null) {
+            return 0L;
+        }
+        long now = nanoTime.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = (fullAt - now < 0 ? now : fullAt) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                rejected.increment();
+                return excess;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                allowed.increment();
+                return 0L;
+            }
+        }
+    }
+
+    public int sweep() {
+        return sweep(nanoTime.getAsLong());
+    }
+
+    private int sweep(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+        return Math.max(0, before - buckets.size());
+    }
+
+    private synchronized void evict(long now) {
+        if (buckets.size() < maxKeys || sweep(now) > 0) {
+            return;
+        }
+        long[] remaining = new long[buckets.size()];
+        int n = 0;
+        for (AtomicLong fullAt : buckets.values()) {
+            if (n == remaining.length) {
+                break;
+            }
+            remaining[n++] = fullAt.get() - now;
+        }
+        if (n == 0) {
+            return;
+        }
+        Arrays.sort(remaining, 0, n);
+        long threshold = remaining[Math.min(n, evictionBatch) - 1];
+        int before = buckets.size();
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= threshold);
+        evictions.add(Math.max(0, before - buckets.size()));
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return name;
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("size", size());
+        metrics.put("allowed", allowed.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("evictions", evictions.sum());
+        return metrics;
+    }
+}
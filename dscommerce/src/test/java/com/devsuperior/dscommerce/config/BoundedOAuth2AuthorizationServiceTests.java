@@ -0,0 +1,121 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.tests.MutableClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Duration;
+
+public class BoundedOAuth2AuthorizationServiceTests {
+
+    private MutableClock clock;
+    private BoundedOAuth2AuthorizationService service;
+    private RegisteredClient registeredClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clock = new MutableClock();
+        service = new BoundedOAuth2AuthorizationService(2, Duration.ofSeconds(60), clock);
+        registeredClient = RegisteredClient.withId("1")
+                .clientId("myclientid")
+                .authorizationGrantType(new AuthorizationGrantType("password"))
+                .build();
+    }
+
+    @Test
+    public void findByTokenShouldReturnAuthorizationWhenAccessTokenIsLive() {
+
+        OAuth2Authorization authorization = createAuthorization("a1", "token1", 60);
+        service.save(authorization);
+
+        Assertions.assertSame(authorization, service.findByToken("token1", OAuth2TokenType.ACCESS_TOKEN));
+        Assertions.assertSame(authorization, service.findByToken("token1", null));
+        Assertions.assertSame(authorization, service.findById("a1"));
+    }
+
+    @Test
+    public void findByTokenShouldReturnNullWhenTokenTypeDoesNotMatch() {
+
+        service.save(createAuthorization("a1", "token1", 60));
+
+        Assertions.assertNull(service.findByToken("token1", OAuth2TokenType.REFRESH_TOKEN));
+    }
+
+    @Test
+    public void findByTokenShouldReturnNullWhenAccessTokenExpired() {
+
+        service.save(createAuthorization("a1", "token1", 60));
+        clock.advance(Duration.ofSeconds(61));
+
+        Assertions.assertNull(service.findByToken("token1", OAuth2TokenType.ACCESS_TOKEN));
+        Assertions.assertEquals(0, service.getMetrics().get("indexedTokens"));
+    }
+
+    @Test
+    public void saveShouldEvictLeastRecentlyUsedAuthorizationWhenFull() {
+
+        service.save(createAuthorization("a1", "token1", 60));
+        service.save(createAuthorization("a2", "token2", 60));
+        service.save(createAuthorization("a3", "token3", 60));
+
+        Assertions.assertNull(service.findByToken("token1", null));
+        Assertions.assertEquals(2, service.size());
+        Assertions.assertEquals(2, service.getMetrics().get("indexedTokens"));
+        Assertions.assertEquals(1L, service.getMetrics().get("evictions"));
+    }
+
+    @Test
+    public void saveShouldReplaceIndexedTokensWhenAuthorizationIsSavedAgain() {
+
+        service.save(createAuthorization("a1", "token1", 60));
+        service.save(createAuthorization("a1", "token2", 60));
+
+        Assertions.assertNull(service.findByToken("token1", null));
+        Assertions.assertNotNull(service.findByToken("token2", null));
+        Assertions.assertEquals(1, service.getMetrics().get("indexedTokens"));
+    }
+
+    @Test
+    public void sweepShouldRemoveExpiredAuthorizationsAndTheirTokens() {
+
+        service.save(createAuthorization("a1", "token1", 10));
+        service.save(createAuthorization("a2", "token2", 60));
+        clock.advance(Duration.ofSeconds(11));
+
+        int result = service.sweep();
+
+        Assertions.assertEquals(1, result);
+        Assertions.assertEquals(1, service.size());
+        Assertions.assertEquals(1, service.getMetrics().get("indexedTokens"));
+    }
+
+    @Test
+    public void removeShouldDropAuthorizationAndItsTokens() {
+
+        OAuth2Authorization authorization = createAuthorization("a1", "token1", 60);
+        service.save(authorization);
+
+        service.remove(authorization);
+
+        Assertions.assertNull(service.findById("a1"));
+        Assertions.assertNull(service.findByToken("token1", null));
+        Assertions.assertEquals(0, service.getMetrics().get("indexedTokens"));
+    }
+
+    private OAuth2Authorization createAuthorization(String id, String tokenValue, long expiresInSeconds) {
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue,
+                clock.instant(), clock.instant().plusSeconds(expiresInSeconds));
+        return OAuth2Authorization.withRegisteredClient(registeredClient)
+                .id(id)
+                .principalName("myclientid")
+                .authorizationGrantType(new AuthorizationGrantType("password"))
+                .accessToken(accessToken)
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.tests.MutableClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+public class CachingJwtDecoderTests {
+
+    private MutableClock clock;
+    private JwtDecoder delegate;
+    private Set<String> keyRing;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clock = new MutableClock();
+        delegate = mock(JwtDecoder.class);
+        keyRing = new HashSet<>(Set.of("key1"));
+        decoder = new CachingJwtDecoder(delegate, keyRing::contains, 2, Duration.ofSeconds(3600), clock);
+
+        when(delegate.decode("token1")).thenReturn(createJwt("token1", clock.instant().plusSeconds(60)));
+        when(delegate.decode("token2")).thenReturn(createJwt("token2", clock.instant().plusSeconds(60)));
+        when(delegate.decode("expired")).thenReturn(createJwt("expired", clock.instant().minusSeconds(1)));
+        when(delegate.decode("invalid")).thenThrow(BadJwtException.class);
+    }
+
+    @Test
+    public void decodeShouldVerifyOnceWhenSameTokenIsDecodedTwice() {
+
+        Jwt first = decoder.decode("token1");
+        Jwt second = decoder.decode("token1");
+
+        Assertions.assertSame(first, second);
+        verify(delegate, times(1)).decode("token1");
+        Assertions.assertEquals(1L, decoder.getMetrics().get("hits"));
+        Assertions.assertEquals(1L, decoder.getMetrics().get("misses"));
+    }
+
+    @Test
+    public void decodeShouldVerifyAgainWhenCachedTokenExpired() {
+
+        decoder.decode("token1");
+        clock.advance(Duration.ofSeconds(61));
+        decoder.decode("token1");
+
+        verify(delegate, times(2)).decode("token1");
+    }
+
+    @Test
+    public void decodeShouldVerifyAgainWhenSigningKeyLeftRing() {
+
+        decoder.decode("token1");
+        keyRing.remove("key1");
+        when(delegate.decode("token1")).thenThrow(BadJwtException.class);
+
+        Assertions.assertThrows(BadJwtException.class, () -> decoder.decode("token1"));
+        Assertions.assertEquals(0, decoder.getMetrics().get("size"));
+    }
+
+    @Test
+    public void decodeShouldNotCacheTokenWithoutKeyInRing() {
+
+        when(delegate.decode("nokid")).thenReturn(Jwt.withTokenValue("nokid")
+                .header("alg", "RS256")
+                .claim("username", "maria@gmail.com")
+                .expiresAt(clock.instant().plusSeconds(60))
+                .build());
+
+        decoder.decode("nokid");
+        decoder.decode("nokid");
+
+        verify(delegate, times(2)).decode("nokid");
+    }
+
+    @Test
+    public void decodeShouldNotCacheTokenWhenAlreadyExpired() {
+
+        decoder.decode("expired");
+
+        Assertions.assertEquals(0, decoder.getMetrics().get("size"));
+    }
+
+    @Test
+    public void decodeShouldThrowAndNotCacheWhenTokenIsInvalid() {
+
+        Assertions.assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+        Assertions.assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+
+        verify(delegate, times(2)).decode("invalid");
+    }
+
+    @Test
+    public void decodeShouldKeepCacheWithinMaxSize() {
+
+        decoder.decode("token1");
+        decoder.decode("token2");
+        decoder.decode("expired");
+        when(delegate.decode("token3")).thenReturn(createJwt("token3", clock.instant().plusSeconds(60)));
+        decoder.decode("token3");
+
+        Assertions.assertEquals(2, decoder.getMetrics().get("size"));
+        Assertions.assertEquals(1L, decoder.getMetrics().get("evictions"));
+    }
+
+    private Jwt createJwt(String tokenValue, Instant expiresAt) {
+        return Jwt.withTokenValue(tokenValue)
+                .header("alg", "RS256")
+                .header("kid", "key1")
+                .claim("username", "maria@gmail.com")
+                .issuedAt(expiresAt.minusSeconds(120))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
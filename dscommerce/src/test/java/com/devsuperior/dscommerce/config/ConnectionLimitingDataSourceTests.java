@@ -0,0 +1,112 @@
+package com.devsuperior.dscommerce.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.*;
+
+public class ConnectionLimitingDataSourceTests {
+
+    private DataSource target;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void getConnectionShouldThrowDatabaseBusyExceptionWhenNoConnectionIsReturnedWithinTimeout() throws Exception {
+
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, Duration.ofMillis(50));
+        Connection held = dataSource.getConnection();
+
+        Assertions.assertThrows(DatabaseBusyException.class, dataSource::getConnection);
+        Assertions.assertEquals(1, dataSource.getMetrics().get("inUse"));
+        Assertions.assertEquals(1L, dataSource.getMetrics().get("rejected"));
+
+        held.close();
+        dataSource.getConnection().close();
+        Assertions.assertEquals(0, dataSource.getMetrics().get("inUse"));
+    }
+
+    @Test
+    public void closeShouldReleaseOnlyOnceAndCloseTargetConnection() throws Exception {
+
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 2, Duration.ofMillis(50));
+
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+        first.close();
+        first.close();
+
+        verify(connection, times(1)).close();
+        Assertions.assertEquals(1, dataSource.getMetrics().get("inUse"));
+    }
+
+    @Test
+    public void getConnectionShouldReleasePermitWhenTargetFails() throws Exception {
+
+        when(target.getConnection()).thenThrow(new SQLException("down"));
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, Duration.ofMillis(50));
+
+        Assertions.assertThrows(SQLException.class, dataSource::getConnection);
+        Assertions.assertThrows(SQLException.class, dataSource::getConnection);
+
+        Assertions.assertEquals(0, dataSource.getMetrics().get("inUse"));
+        Assertions.assertEquals(0L, dataSource.getMetrics().get("rejected"));
+    }
+
+    @Test
+    public void getConnectionShouldNeverLendMoreThanLimitConnectionsUnderBurst() throws Exception {
+
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 4, Duration.ofSeconds(30));
+        AtomicInteger inUse = new AtomicInteger();
+        AtomicInteger maxInUse = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            futures.add(executor.submit(() -> {
+                Connection connection = dataSource.getConnection();
+                try {
+                    maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                    Thread.sleep(2);
+                    inUse.decrementAndGet();
+                } finally {
+                    connection.close();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        Assertions.assertTrue(maxInUse.get() <= 4);
+        Assertions.assertEquals(64L, dataSource.getMetrics().get("admitted"));
+        Assertions.assertEquals(0L, dataSource.getMetrics().get("rejected"));
+    }
+}
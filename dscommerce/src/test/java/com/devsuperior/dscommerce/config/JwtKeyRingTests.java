@@ -0,0 +1,103 @@
+package com.devsuperior.dscommerce.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+public class JwtKeyRingTests {
+
+    private Path keyRingFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JWK ecKey = new ECKeyGenerator(Curve.P_256).keyID("ec-2024").algorithm(JWSAlgorithm.ES256).generate();
+        JWK rsaKey = new RSAKeyGenerator(2048).keyID("rsa-2023").generate();
+        keyRingFile = Files.createTempFile("jwks", ".json");
+        Files.writeString(keyRingFile, new JWKSet(List.of(ecKey, rsaKey)).toString(false));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(keyRingFile);
+    }
+
+    @Test
+    public void generateShouldSignWithRequestedAlgorithmAndKid() {
+
+        JwtKeyRing keyRing = JwtKeyRing.generate("ES256");
+
+        Jwt jwt = encode(keyRing);
+
+        Assertions.assertEquals(SignatureAlgorithm.ES256, jwt.getHeaders().get("alg"));
+        Assertions.assertEquals(keyRing.getSigningKeyId(), jwt.getHeaders().get("kid"));
+        Assertions.assertEquals("maria@gmail.com", decoder(keyRing).decode(jwt.getTokenValue()).getClaimAsString("username"));
+    }
+
+    @Test
+    public void loadShouldSignWithFirstKeyWhenSigningKeyIdIsEmpty() {
+
+        JwtKeyRing keyRing = JwtKeyRing.load(keyRingFile, "");
+
+        Assertions.assertEquals("ec-2024", keyRing.getSigningKeyId());
+        Assertions.assertEquals(SignatureAlgorithm.ES256, keyRing.getSigningAlgorithm());
+        Assertions.assertEquals(List.of("ec-2024", "rsa-2023"), keyRing.getKeyIds());
+        Assertions.assertTrue(keyRing.containsKeyId("rsa-2023"));
+        Assertions.assertFalse(keyRing.containsKeyId("rsa-2022"));
+    }
+
+    @Test
+    public void decoderShouldAcceptTokensSignedByEveryKeyInRing() {
+
+        JwtKeyRing current = JwtKeyRing.load(keyRingFile, "ec-2024");
+        JwtKeyRing previous = JwtKeyRing.load(keyRingFile, "rsa-2023");
+
+        Jwt oldToken = encode(previous);
+        Jwt newToken = encode(current);
+
+        Assertions.assertEquals(SignatureAlgorithm.RS256, oldToken.getHeaders().get("alg"));
+        Assertions.assertNotNull(decoder(current).decode(oldToken.getTokenValue()));
+        Assertions.assertNotNull(decoder(current).decode(newToken.getTokenValue()));
+    }
+
+    @Test
+    public void loadShouldThrowIllegalStateExceptionWhenSigningKeyIdIsUnknown() {
+
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            JwtKeyRing.load(keyRingFile, "unknown");
+        });
+    }
+
+    private Jwt encode(JwtKeyRing keyRing) {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .claim("username", "maria@gmail.com")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(60))
+                .build();
+        JwsHeader header = JwsHeader.with(SignatureAlgorithm.RS256).build();
+        return keyRing.jwtEncoder().encode(JwtEncoderParameters.from(header, claims));
+    }
+
+    private JwtDecoder decoder(JwtKeyRing keyRing) {
+        return OAuth2AuthorizationServerConfiguration.jwtDecoder(keyRing.jwkSource());
+    }
+}
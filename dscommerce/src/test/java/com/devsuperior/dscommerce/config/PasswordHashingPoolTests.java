@@ -0,0 +1,91 @@
+package com.devsuperior.dscommerce.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PasswordHashingPoolTests {
+
+    private CountDownLatch release;
+    private CountDownLatch started;
+    private PasswordHashingPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        release = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+        pool = new PasswordHashingPool(new BlockingPasswordEncoder(), 1, 1, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        pool.shutdown();
+    }
+
+    @Test
+    public void matchesShouldDelegateAndRecordHashWhenPoolIsIdle() {
+
+        release.countDown();
+
+        boolean result = pool.getPasswordEncoder().matches("123456", "123456");
+
+        Assertions.assertTrue(result);
+        Assertions.assertEquals(1L, pool.getMetrics().get("hashes"));
+        Assertions.assertEquals(0L, pool.getMetrics().get("rejected"));
+    }
+
+    @Test
+    public void matchesShouldThrowPasswordEncoderBusyExceptionWhenQueueIsFull() throws Exception {
+
+        PasswordEncoder encoder = pool.getPasswordEncoder();
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "a"));
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "b"));
+        while (pool.getMetrics().get("queueDepth").intValue() == 0) {
+            Thread.onSpinWait();
+        }
+
+        Assertions.assertThrows(PasswordEncoderBusyException.class, () -> encoder.matches("c", "c"));
+        Assertions.assertEquals(1L, pool.getMetrics().get("rejected"));
+
+        release.countDown();
+        Assertions.assertTrue(running.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void matchesShouldThrowPasswordEncoderBusyExceptionWhenHashTimesOut() {
+
+        pool.shutdown();
+        pool = new PasswordHashingPool(new BlockingPasswordEncoder(), 1, 1, Duration.ofMillis(50));
+
+        Assertions.assertThrows(PasswordEncoderBusyException.class, () -> pool.getPasswordEncoder().matches("a", "a"));
+    }
+
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.devsuperior.dscommerce.config;
+
+import com.devsuperior.dscommerce.util.TokenBucketRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenEndpointRateLimitFilterTests {
+
+    private AtomicLong nanoTime;
+    private TokenEndpointRateLimiter rateLimiter;
+    private TokenEndpointRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        nanoTime = new AtomicLong();
+        rateLimiter = new TokenEndpointRateLimiter(
+                new TokenBucketRateLimiter<>("address", 3, Duration.ofSeconds(1), 100, nanoTime::get),
+                new TokenBucketRateLimiter<>("username", 1, Duration.ofMillis(2500), 100, nanoTime::get));
+        filter = new TokenEndpointRateLimitFilter(rateLimiter, new AntPathRequestMatcher("/oauth2/token", "POST"));
+    }
+
+    @Test
+    public void doFilterShouldPassRequestWhenUnderLimit() throws Exception {
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(tokenRequest("10.0.0.1", "maria@gmail.com"), response, chain);
+
+        Assertions.assertNotNull(chain.getRequest());
+        Assertions.assertEquals(1L, rateLimiter.getMetrics().get("username.allowed"));
+    }
+
+    @Test
+    public void doFilterShouldReturnTooManyRequestsWithRetryAfterWhenUsernameIsOverLimit() throws Exception {
+
+        filter.doFilter(tokenRequest("10.0.0.1", "maria@gmail.com"), new MockHttpServletResponse(), new MockFilterChain());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(tokenRequest("10.0.0.2", "maria@gmail.com"), response, chain);
+
+        Assertions.assertNull(chain.getRequest());
+        Assertions.assertEquals(429, response.getStatus());
+        Assertions.assertEquals("3", response.getHeader("Retry-After"));
+        Assertions.assertTrue(response.getContentAsString().contains("temporarily_unavailable"));
+        Assertions.assertEquals(1L, rateLimiter.getMetrics().get("username.rejected"));
+    }
+
+    @Test
+    public void doFilterShouldReturnTooManyRequestsWhenAddressIsOverLimit() throws Exception {
+
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(tokenRequest("10.0.0.1", "user" + i + "@gmail.com"), new MockHttpServletResponse(),
+                    new MockFilterChain());
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(tokenRequest("10.0.0.1", "alex@gmail.com"), response, new MockFilterChain());
+
+        Assertions.assertEquals(429, response.getStatus());
+        Assertions.assertEquals(1L, rateLimiter.getMetrics().get("address.rejected"));
+        Assertions.assertEquals(0L, rateLimiter.getMetrics().get("username.rejected"));
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(tokenRequest("10.0.0.1", "alex@gmail.com"), new MockHttpServletResponse(), chain);
+
+        Assertions.assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    public void doFilterShouldIgnoreRequestsOutsideTokenEndpoint() throws Exception {
+
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+            request.setRemoteAddr("10.0.0.1");
+            MockFilterChain chain = new MockFilterChain();
+
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+            Assertions.assertNotNull(chain.getRequest());
+        }
+        Assertions.assertEquals(0L, rateLimiter.getMetrics().get("address.allowed"));
+    }
+
+    private MockHttpServletRequest tokenRequest(String remoteAddress, String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth2/token");
+        request.setServletPath("/oauth2/token");
+        request.setRemoteAddr(remoteAddress);
+        String credentials = Base64.getEncoder().encodeToString("myclientid:myclientsecret".getBytes(StandardCharsets.UTF_8));
+        request.addHeader("Authorization", "Basic " + credentials);
+        request.addParameter("grant_type", "password");
+        request.addParameter("username", username);
+        request.addParameter("password", "123456");
+        return request;
+    }
+}
@@ -0,0 +1,38 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+
+public class CustomPasswordAuthenticationFailureHandlerTests {
+
+	private final CustomPasswordAuthenticationFailureHandler handler = new CustomPasswordAuthenticationFailureHandler();
+
+	@Test
+	public void onAuthenticationFailureShouldReturnTooManyRequestsWhenTemporarilyUnavailable() throws Exception {
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		OAuth2AuthenticationException exception = new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE));
+
+		handler.onAuthenticationFailure(new MockHttpServletRequest(), response, exception);
+
+		Assertions.assertEquals(429, response.getStatus());
+		Assertions.assertEquals("1", response.getHeader("Retry-After"));
+		Assertions.assertTrue(response.getContentAsString().contains(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE));
+	}
+
+	@Test
+	public void onAuthenticationFailureShouldReturnBadRequestWhenCredentialsAreInvalid() throws Exception {
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		OAuth2AuthenticationException exception = new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_GRANT);
+
+		handler.onAuthenticationFailure(new MockHttpServletRequest(), response, exception);
+
+		Assertions.assertEquals(400, response.getStatus());
+	}
+}
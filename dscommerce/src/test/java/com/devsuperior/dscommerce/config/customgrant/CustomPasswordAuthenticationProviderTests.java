@@ -0,0 +1,205 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import com.devsuperior.dscommerce.config.AuthorizationServerConfig;
+import com.devsuperior.dscommerce.config.JwtKeyRing;
+import com.devsuperior.dscommerce.config.PasswordEncoderBusyException;
+import com.devsuperior.dscommerce.entities.Role;
+import com.devsuperior.dscommerce.entities.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.Mockito.*;
+
+public class CustomPasswordAuthenticationProviderTests {
+
+	private static final int USERS = 200;
+	private static final int REQUESTS = 2000;
+	private static final int THREADS = 16;
+
+	private CustomPasswordAuthenticationProvider provider;
+	private JwtGenerator tokenGenerator;
+	private UserDetailsService userDetailsService;
+	private JwtDecoder jwtDecoder;
+	private RegisteredClient registeredClient;
+	private AuthorizationServerContext authorizationServerContext;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		JwtKeyRing keyRing = JwtKeyRing.generate("ES256");
+		tokenGenerator = new JwtGenerator(keyRing.jwtEncoder());
+		tokenGenerator.setJwtCustomizer(new AuthorizationServerConfig().tokenCustomizer());
+		jwtDecoder = OAuth2AuthorizationServerConfiguration.jwtDecoder(keyRing.jwkSource());
+
+		PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+		String encodedPassword = passwordEncoder.encode("123456");
+		userDetailsService = username -> {
+			if (!username.startsWith("user")) {
+				throw new UsernameNotFoundException("Email not found");
+			}
+			Long id = Long.parseLong(username.substring(4, username.indexOf('@')));
+			User user = new User(id, "User " + id, username, "999999999", null, encodedPassword);
+			user.addRole(new Role(1L, "ROLE_CLIENT"));
+			return user;
+		};
+
+		registeredClient = RegisteredClient.withId("1")
+				.clientId("myclientid")
+				.scope("read")
+				.scope("write")
+				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.build();
+
+		AuthorizationServerSettings settings = AuthorizationServerSettings.builder().issuer("http://localhost:8080").build();
+		authorizationServerContext = new AuthorizationServerContext() {
+			@Override
+			public String getIssuer() {
+				return settings.getIssuer();
+			}
+
+			@Override
+			public AuthorizationServerSettings getAuthorizationServerSettings() {
+				return settings;
+			}
+		};
+
+		provider = new CustomPasswordAuthenticationProvider(new InMemoryOAuth2AuthorizationService(),
+				tokenGenerator, userDetailsService, passwordEncoder);
+	}
+
+	@Test
+	public void authenticateShouldReturnTokenWithUsernameClaimWhenCredentialsAreValid() {
+
+		OAuth2AccessTokenAuthenticationToken result = authenticate("user1@gmail.com", "123456");
+
+		Jwt jwt = jwtDecoder.decode(result.getAccessToken().getTokenValue());
+		Assertions.assertEquals("user1@gmail.com", jwt.getClaimAsString("username"));
+		Assertions.assertEquals(1L, ((Number) jwt.getClaim("user_id")).longValue());
+		Assertions.assertEquals(List.of("ROLE_CLIENT"), jwt.getClaimAsStringList("authorities"));
+	}
+
+	@Test
+	public void authenticateShouldThrowOAuth2AuthenticationExceptionWhenPasswordIsWrong() {
+
+		Assertions.assertThrows(OAuth2AuthenticationException.class, () -> {
+			authenticate("user1@gmail.com", "654321");
+		});
+	}
+
+	@Test
+	public void authenticateShouldThrowOAuth2AuthenticationExceptionWhenUserDoesNotExist() {
+
+		Assertions.assertThrows(OAuth2AuthenticationException.class, () -> {
+			authenticate("nobody@gmail.com", "123456");
+		});
+	}
+
+	@Test
+	public void authenticateShouldThrowTemporarilyUnavailableWhenPasswordEncoderIsBusy() {
+
+		PasswordEncoder busyEncoder = mock(PasswordEncoder.class);
+		when(busyEncoder.matches(any(), any())).thenThrow(new PasswordEncoderBusyException("busy"));
+		provider = new CustomPasswordAuthenticationProvider(new InMemoryOAuth2AuthorizationService(),
+				tokenGenerator, userDetailsService, busyEncoder);
+
+		OAuth2AuthenticationException result = Assertions.assertThrows(OAuth2AuthenticationException.class, () -> {
+			authenticate("user1@gmail.com", "123456");
+		});
+		Assertions.assertEquals(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE, result.getError().getErrorCode());
+	}
+
+	@Test
+	public void authenticateShouldRehashPasswordWhenStoredCostIsStale() {
+
+		UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+		provider = new CustomPasswordAuthenticationProvider(new InMemoryOAuth2AuthorizationService(),
+				tokenGenerator, userDetailsService, new BCryptPasswordEncoder(5), passwordService);
+
+		authenticate("user1@gmail.com", "123456");
+
+		verify(passwordService).updatePassword(any(), argThat(hash -> hash.startsWith("$2a$05$")));
+	}
+
+	@Test
+	public void authenticateShouldNotRehashPasswordWhenStoredCostIsCurrent() {
+
+		UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+		provider = new CustomPasswordAuthenticationProvider(new InMemoryOAuth2AuthorizationService(),
+				tokenGenerator, userDetailsService, new BCryptPasswordEncoder(4), passwordService);
+
+		authenticate("user1@gmail.com", "123456");
+
+		verify(passwordService, never()).updatePassword(any(), any());
+	}
+
+	@Test
+	public void authenticateShouldKeepEachUsernameInItsOwnTokenWhenGrantsRunConcurrently() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String[]>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < REQUESTS; i++) {
+				String username = "user" + (i % USERS) + "@gmail.com";
+				results.add(executor.submit(() -> {
+					start.await();
+					OAuth2AccessTokenAuthenticationToken token = authenticate(username, "123456");
+					Jwt jwt = jwtDecoder.decode(token.getAccessToken().getTokenValue());
+					return new String[] {username, jwt.getClaimAsString("username"), "user" + jwt.getClaim("user_id") + "@gmail.com"};
+				}));
+			}
+			start.countDown();
+
+			for (Future<String[]> result : results) {
+				String[] claims = result.get();
+				Assertions.assertEquals(claims[0], claims[1]);
+				Assertions.assertEquals(claims[0], claims[2]);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private OAuth2AccessTokenAuthenticationToken authenticate(String username, String password) {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(
+				registeredClient, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, "myclientsecret");
+		Map<String, Object> parameters = Map.of("username", username, "password", password);
+		CustomPasswordAuthenticationToken authentication = new CustomPasswordAuthenticationToken(clientPrincipal, null, parameters);
+		AuthorizationServerContextHolder.setContext(authorizationServerContext);
+		try {
+			return (OAuth2AccessTokenAuthenticationToken) provider.authenticate(authentication);
+		} finally {
+			AuthorizationServerContextHolder.resetContext();
+			SecurityContextHolder.clearContext();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import com.devsuperior.dscommerce.tests.TokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class AuthorizationServerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Value("${security.client-id}")
+    private String clientId;
+
+    @Value("${security.client-secret}")
+    private String clientSecret;
+
+    private String clientUsername, clientPassword;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clientUsername = "maria@gmail.com";
+        clientPassword = "123456";
+    }
+
+    @Test
+    public void passwordGrantShouldReturnRefreshToken() throws Exception {
+
+        Map<String, Object> result = tokenUtil.obtainTokens(mockMvc, clientUsername, clientPassword);
+
+        assertNotNull(result.get("access_token"));
+        assertNotNull(result.get("refresh_token"));
+    }
+
+    @Test
+    public void refreshTokenGrantShouldReturnNewTokensForSameUserWhenRefreshTokenIsValid() throws Exception {
+
+        Map<String, Object> tokens = tokenUtil.obtainTokens(mockMvc, clientUsername, clientPassword);
+
+        Map<String, Object> result = tokenUtil.refreshTokens(mockMvc, tokens.get("refresh_token").toString());
+
+        assertNotEquals(tokens.get("refresh_token"), result.get("refresh_token"));
+        mockMvc.perform(get("/users/me")
+                        .header("Authorization", "Bearer " + result.get("access_token"))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(clientUsername));
+    }
+
+    @Test
+    public void refreshTokenGrantShouldReturnBadRequestWhenRefreshTokenWasAlreadyUsed() throws Exception {
+
+        Map<String, Object> tokens = tokenUtil.obtainTokens(mockMvc, clientUsername, clientPassword);
+        String refreshToken = tokens.get("refresh_token").toString();
+        tokenUtil.refreshTokens(mockMvc, refreshToken);
+
+        ResultActions result = mockMvc
+                .perform(post("/oauth2/token")
+                        .param("grant_type", "refresh_token")
+                        .param("refresh_token", refreshToken)
+                        .with(httpBasic(clientId, clientSecret))
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+        result.andExpect(jsonPath("$.error").value("invalid_grant"));
+    }
+}
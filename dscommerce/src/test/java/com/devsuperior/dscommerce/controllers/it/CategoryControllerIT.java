@@ -0,0 +1,102 @@
+package com.devsuperior.dscommerce.controllers.it;
+
+import com.devsuperior.dscommerce.config.BoundedCacheRegionFactory;
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CategoryControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BoundedCacheRegionFactory regionFactory;
+
+    private String queryRegion;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        queryRegion = "default-query-results-region";
+    }
+
+    @Test
+    public void findAllShouldServeRepeatedRequestsFromSecondLevelCache() throws Exception {
+
+        findAll().andExpect(status().isOk());
+        long queryHits = metric(queryRegion + ".hits");
+        long categoryMisses = metric("category.misses");
+
+        ResultActions result = findAll();
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$[0].name").value("Livros"));
+        Assertions.assertEquals(queryHits + 1, metric(queryRegion + ".hits"));
+        Assertions.assertEquals(categoryMisses, metric("category.misses"));
+    }
+
+    @Test
+    public void findAllShouldReturnUpdatedNameWhenCategoryChangesAfterCaching() throws Exception {
+
+        findAll().andExpect(status().isOk());
+        rename(1L, "Livros e Revistas");
+        try {
+            ResultActions result = findAll();
+
+            result.andExpect(status().isOk());
+            result.andExpect(jsonPath("$[0].name").value("Livros e Revistas"));
+        } finally {
+            rename(1L, "Livros");
+        }
+    }
+
+    @Test
+    public void findAllShouldReturnNotModifiedWhenETagMatches() throws Exception {
+
+        String eTag = findAll().andReturn().getResponse().getHeader("ETag");
+
+        ResultActions result = mockMvc.perform(get("/categories")
+                .header("If-None-Match", eTag)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(header().exists("Cache-Control"));
+    }
+
+    private ResultActions findAll() throws Exception {
+        return mockMvc.perform(get("/categories").accept(MediaType.APPLICATION_JSON));
+    }
+
+    private void rename(Long id, String name) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = categoryRepository.getReferenceById(id);
+            category.setName(name);
+        });
+    }
+
+    private long metric(String name) {
+        return regionFactory.getMetrics().get(name).longValue();
+    }
+}
@@ -157,4 +157,43 @@ public class OrderControllerIT {
         result.andExpect(status().isUnauthorized());
     }
 
+    @Test
+    public void insertShouldReturnOrderDTOCreatedWhenClientLogged() throws Exception {
+
+        orderDTO = new OrderDTO(order);
+        String jsonBody = objectMapper.writeValueAsString(orderDTO);
+
+        ResultActions result = mockMvc
+                .perform(post("/orders")
+                        .header("Authorization", "Bearer " + clientToken)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isCreated());
+        result.andExpect(jsonPath("$.id").exists());
+        result.andExpect(jsonPath("$.client.name").value("Maria Brown"));
+        result.andExpect(jsonPath("$.items[0].productId").value(1L));
+        result.andExpect(jsonPath("$.items[0].price").value(90.5));
+    }
+
+    @Test
+    public void insertShouldReturnNotFoundWhenProductIdDoesNotExistAndClientLogged() throws Exception {
+
+        Product product = ProductFactory.createProduct();
+        product.setId(1000L);
+        order.getItems().add(new OrderItem(order, product, 1, 10.0));
+        orderDTO = new OrderDTO(order);
+        String jsonBody = objectMapper.writeValueAsString(orderDTO);
+
+        ResultActions result = mockMvc
+                .perform(post("/orders")
+                        .header("Authorization", "Bearer " + clientToken)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotFound());
+    }
+
 }
@@ -3,6 +3,7 @@ package com.devsuperior.dscommerce.controllers.it;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
 import com.devsuperior.dscommerce.tests.ProductFactory;
 import com.devsuperior.dscommerce.tests.TokenUtil;
 import com.devsuperior.dscommerce.util.CustomUserUtil;
@@ -12,14 +13,24 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -37,6 +48,15 @@ public class ProductControllerIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @SpyBean
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private Long existingProductId, nonExistingProductId, dependentProductId;
     private String clientUsername, clientPassword, adminUsername, adminPassword;
     private String clientToken, adminToken, invalidToken;
@@ -97,6 +117,394 @@ public class ProductControllerIT {
         result.andExpect(jsonPath("$.content[0].imgUrl").value("https://raw.githubusercontent.com/devsuperior/dscatalog-resources/master/backend/img/3-big.jpg"));
     }
 
+    @Test
+    public void findAllShouldReturnPageSortedByPriceWhenSortParamIsPrice() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?sort=price,desc")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(25));
+        result.andExpect(jsonPath("$.content[0].id").value(25L));
+        result.andExpect(jsonPath("$.content[0].price").value(4170.0));
+    }
+
+    @Test
+    public void findAllShouldSortInDatabaseWhenSortHasManyKeysAndNothingIsFiltered() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?sort=price&sort=name,desc")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(25));
+        result.andExpect(jsonPath("$.content[0].id").value(1L));
+        result.andExpect(jsonPath("$.content[5].id").value(7L));
+        result.andExpect(jsonPath("$.content[6].id").value(13L));
+        result.andExpect(jsonPath("$.content[7].id").value(6L));
+    }
+
+    @Test
+    public void findAllShouldReturnBadRequestWhenFilteredProductsCannotBeSortedInMemory() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?categoryId=3&sort=price&sort=name")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllShouldReturnOnlyProductsInCategoryWhenCategoryIdParamIsGiven() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?categoryId=1&sort=id")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(2));
+        result.andExpect(jsonPath("$.content[0].id").value(1L));
+        result.andExpect(jsonPath("$.content[1].id").value(5L));
+    }
+
+    @Test
+    public void findAllShouldCombineNameAndCategoryFilters() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?name={productName}&categoryId=3", productName)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(1));
+        result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+    }
+
+    @Test
+    public void findAllShouldReturnOnlyProductsInPriceRangeOrderedByPrice() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?minPrice=100&maxPrice=1250&sort=price")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(3));
+        result.andExpect(jsonPath("$.content[0].id").value(5L));
+        result.andExpect(jsonPath("$.content[1].id").value(4L));
+        result.andExpect(jsonPath("$.content[2].id").value(3L));
+    }
+
+    @Test
+    public void findAllShouldCombinePriceRangeWithCategoryAndNameFilters() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?name=gamer&categoryId=3&minPrice=2300&sort=price,desc")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(3));
+        result.andExpect(jsonPath("$.content[0].name").value("PC Gamer Foo"));
+        result.andExpect(jsonPath("$.content[1].name").value("PC Gamer Boo"));
+        result.andExpect(jsonPath("$.content[2].name").value("PC Gamer Max"));
+    }
+
+    @Test
+    public void findAllShouldReturnBadRequestWhenMinPriceIsGreaterThanMaxPrice() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?minPrice=1000&maxPrice=100")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllShouldReturnNothingForMisspelledNameWhenNotFuzzy() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?name=macbok")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    @Test
+    public void findAllShouldMatchMisspelledNameWhenFuzzy() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?name=macbok&fuzzy=true")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(1));
+        result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+    }
+
+    @Test
+    public void findAllShouldRankFuzzyMatchesByDistanceThenRelevance() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?name=pc gamr&fuzzy=true&size=3")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(21));
+        result.andExpect(jsonPath("$.content[0].name").value("PC Gamer"));
+        result.andExpect(jsonPath("$.content[1].name").value("PC Gamer Ex"));
+        result.andExpect(jsonPath("$.content[2].name").value("PC Gamer X"));
+    }
+
+    @Test
+    public void findAllShouldRankByRelevanceWhenSortIsRelevance() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?name=PC Gamer Tera&sort=relevance&size=2")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(21));
+        result.andExpect(jsonPath("$.content[0].name").value("PC Gamer Tera"));
+        result.andExpect(jsonPath("$.content[1].name").value("PC Gamer"));
+    }
+
+    @Test
+    public void findAllShouldSearchDescriptionWhenSortIsRelevance() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?name=consectetur&sort=relevance")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(25));
+    }
+
+    @Test
+    public void findAllShouldIgnoreRelevanceSortWhenNameIsEmpty() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?sort=relevance")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(25));
+    }
+
+    @Test
+    public void suggestShouldReturnNamesWithWordStartingWithPrefix() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products/suggest?prefix=GÂMER T&size=3")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.length()").value(3));
+        result.andExpect(jsonPath("$[0].name").value("PC Gamer Tera"));
+        result.andExpect(jsonPath("$[1].name").value("PC Gamer Tr"));
+        result.andExpect(jsonPath("$[2].name").value("PC Gamer Turbo"));
+    }
+
+    @Test
+    public void suggestShouldReturnEmptyListWhenNoNameMatches() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products/suggest?prefix=xbox")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void findCategoryFacetsShouldReturnProductCountPerCategory() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products/facets")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$[0].name").value("Livros"));
+        result.andExpect(jsonPath("$[0].count").value(2));
+        result.andExpect(jsonPath("$[2].name").value("Computadores"));
+        result.andExpect(jsonPath("$[2].count").value(23));
+    }
+
+    @Test
+    public void findAllAfterShouldReturnSliceOrderedByNameWhenAfterParamIsEmpty() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?after=&size=2")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").value(3L));
+        result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+        result.andExpect(jsonPath("$.content[1].name").value("PC Gamer"));
+        result.andExpect(jsonPath("$.hasNext").value(true));
+        result.andExpect(jsonPath("$.next").isNotEmpty());
+    }
+
+    @Test
+    public void findAllAfterShouldReturnOnlyProductsMatchingFilters() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?after=&categoryId=1&maxPrice=100")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content.length()").value(1));
+        result.andExpect(jsonPath("$.content[0].name").value("The Lord of the Rings"));
+        result.andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    public void findAllAfterShouldReturnBadRequestWhenFuzzy() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?after=&name=gamr&fuzzy=true")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllAfterShouldReturnBadRequestWhenCursorIsInvalid() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?after={after}", "@@@")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findByIdShouldReturnETagAndCacheControlWhenIdExists() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products/{id}", existingProductId)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(header().string("ETag", "\"product-2-0\""));
+        result.andExpect(header().string("Cache-Control", "max-age=0, public, s-maxage=60, stale-while-revalidate=30"));
+        result.andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    public void findByIdShouldReturnNotModifiedWithoutBodyWhenETagMatches() throws Exception {
+
+        String eTag = mockMvc.perform(get("/products/{id}", existingProductId))
+                .andReturn().getResponse().getHeader("ETag");
+
+        ResultActions result = mockMvc
+                .perform(get("/products/{id}", existingProductId)
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(header().string("ETag", eTag));
+        result.andExpect(header().exists("Cache-Control"));
+        result.andExpect(content().string(""));
+    }
+
+    @Test
+    public void findByIdShouldReturnNewETagWhenProductWasUpdated() throws Exception {
+
+        String eTag = mockMvc.perform(get("/products/{id}", existingProductId))
+                .andReturn().getResponse().getHeader("ETag");
+        String jsonBody = objectMapper.writeValueAsString(productDTO);
+        mockMvc.perform(put("/products/{id}", existingProductId)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        ResultActions result = mockMvc
+                .perform(get("/products/{id}", existingProductId)
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(header().string("ETag", "\"product-2-1\""));
+        result.andExpect(jsonPath("$.name").value("PlayStation 5"));
+    }
+
+    @Test
+    public void findByIdShouldReturnNotFoundWhenETagIsGivenAndIdDoesNotExist() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products/{id}", nonExistingProductId)
+                        .header("If-None-Match", "\"product-" + nonExistingProductId + "-0\"")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findAllShouldReturnNewETagWhenProductWasUpdated() throws Exception {
+
+        // the tag moves once the update commits, so the update is committed, writing the product back as is
+        String jsonBody = mockMvc.perform(get("/products/{id}", 25L))
+                .andReturn().getResponse().getContentAsString();
+        String eTag = mockMvc.perform(get("/products"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(put("/products/{id}", 25L)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        ResultActions result = mockMvc
+                .perform(get("/products")
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(header().string("ETag", not(eTag)));
+    }
+
+    @Test
+    public void findAllShouldReturnNotModifiedWhenETagMatches() throws Exception {
+
+        String eTag = mockMvc.perform(get("/products"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        ResultActions result = mockMvc
+                .perform(get("/products?page=1")
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(content().string(""));
+    }
+
+    @Test
+    public void findAllByIdsShouldReturnProductsWithCategoriesAndMissingIds() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?ids={ids}", "3,1," + nonExistingProductId)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content.length()").value(2));
+        result.andExpect(jsonPath("$.content[0].id").value(3L));
+        result.andExpect(jsonPath("$.content[0].categories[0].id").exists());
+        result.andExpect(jsonPath("$.content[1].id").value(1L));
+        result.andExpect(jsonPath("$.content[1].name").value("The Lord of the Rings"));
+        result.andExpect(jsonPath("$.missing[0]").value(nonExistingProductId));
+    }
+
+    @Test
+    public void findAllByIdsShouldReturnBadRequestWhenIdIsNotNumber() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/products?ids={ids}", "1,abc")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
     @Test
     public void insertShouldReturnProductDTOCreatedWhenAdminLogged() throws Exception {
 
@@ -239,6 +647,38 @@ public class ProductControllerIT {
         result.andExpect(status().isUnauthorized());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void updateShouldReturnConflictWhenProductWasUpdatedConcurrently() throws Exception {
+
+        // another writer commits a new version between this request's read and its flush; saving the
+        // managed product is a merge that returns it, and the update itself is flushed at commit
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doAnswer(invocation -> {
+            concurrent.executeWithoutResult(status -> jdbcTemplate.update(
+                    "UPDATE tb_product SET version = version + 1 WHERE id = ?", existingProductId));
+            return invocation.getArgument(0);
+        }).when(productRepository).save(any());
+        String jsonBody = objectMapper.writeValueAsString(productDTO);
+
+        try {
+            ResultActions result = mockMvc
+                    .perform(put("/products/{id}", existingProductId)
+                            .header("Authorization", "Bearer " + adminToken)
+                            .content(jsonBody)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(MediaType.APPLICATION_JSON));
+
+            result.andExpect(status().isConflict());
+            result.andExpect(jsonPath("$.status").value(409));
+            result.andExpect(jsonPath("$.error").isNotEmpty());
+            result.andExpect(jsonPath("$.path").value("/products/" + existingProductId));
+        } finally {
+            jdbcTemplate.update("UPDATE tb_product SET version = version - 1 WHERE id = ?", existingProductId);
+        }
+    }
+
     @Test
     public void deleteShouldReturnNoContentWhenIdExistsAndAdminLogged() throws Exception {
 
@@ -0,0 +1,96 @@
+package com.devsuperior.dscommerce.repositories;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.entities.*;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@DataJpaTest
+public class OrderRepositoryTests {
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long orderWithManyItemsId;
+    private int itemCount;
+    private List<Long> productIds;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        itemCount = 50;
+        productIds = new ArrayList<>();
+
+        User client = entityManager.getReference(User.class, 1L);
+        Order order = new Order(null, Instant.now(), OrderStatus.PAID, client, null);
+        entityManager.persist(order);
+        order.setPayment(new Payment(null, Instant.now(), order));
+        entityManager.persist(order.getPayment());
+
+        for (int i = 0; i < itemCount; i++) {
+            Product product = new Product(null, "Product " + i, "Lorem ipsum dolor sit amet", 10.0 + i, "img.jpg");
+            entityManager.persist(product);
+            productIds.add(product.getId());
+            entityManager.persist(new OrderItem(order, product, 1, product.getPrice()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        orderWithManyItemsId = order.getId();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    public void searchWithItemsShouldLoadWholeOrderInOneStatementWhenOrderHasManyItems() {
+
+        Order order = repository.searchWithItems(orderWithManyItemsId).orElseThrow();
+        OrderDTO dto = new OrderDTO(order);
+
+        Assertions.assertEquals(itemCount, dto.getItems().size());
+        Assertions.assertNotNull(dto.getClient().getName());
+        Assertions.assertNotNull(dto.getPayment());
+        Assertions.assertNotNull(dto.getItems().get(0).getName());
+        Assertions.assertEquals(1L, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void saveShouldInsertItemsInBatchesWhenOrderHasManyItems() {
+
+        List<Product> products = entityManager
+                .createQuery("SELECT obj FROM Product obj WHERE obj.id IN :ids", Product.class)
+                .setParameter("ids", productIds)
+                .getResultList();
+        Order order = new Order(null, Instant.now(), OrderStatus.WAITING_PAYMENT, entityManager.getReference(User.class, 1L), null);
+        for (Product product : products) {
+            order.getItems().add(new OrderItem(order, product, 1, product.getPrice()));
+        }
+        statistics.clear();
+
+        repository.save(order);
+        entityManager.flush();
+
+        Assertions.assertEquals(itemCount, statistics.getEntityInsertCount() - 1);
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 3);
+    }
+
+    @Test
+    public void searchWithItemsShouldReturnEmptyWhenIdDoesNotExist() {
+
+        Assertions.assertTrue(repository.searchWithItems(1000L).isEmpty());
+    }
+}
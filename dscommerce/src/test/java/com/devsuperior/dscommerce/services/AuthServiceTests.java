@@ -3,6 +3,7 @@ package com.devsuperior.dscommerce.services;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
 import com.devsuperior.dscommerce.tests.UserFactory;
+import com.devsuperior.dscommerce.util.CustomUserUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,7 +22,7 @@ public class AuthServiceTests {
     private AuthService service;
 
     @Mock
-    private UserService userService;
+    private CustomUserUtil customUserUtil;
 
     private User admin, selfClient, otherClient;
 
@@ -37,9 +38,10 @@ public class AuthServiceTests {
     @Test
     public void validateSelfOrAdminShouldDoNothingWhenAdminLogged() {
 
-        when(userService.authenticated()).thenReturn(admin);
+        when(customUserUtil.loggedUserHasRole("ROLE_ADMIN")).thenReturn(true);
+        when(customUserUtil.getLoggedUserId()).thenReturn(admin.getId());
 
-        Long userId = admin.getId();
+        Long userId = otherClient.getId();
 
         Assertions.assertDoesNotThrow(() -> {
             service.validateSelfOrAdmin(userId);
@@ -49,7 +51,8 @@ public class AuthServiceTests {
     @Test
     public void validateSelfOrAdminShouldDoNothingWhenSelfLogged() {
 
-        when(userService.authenticated()).thenReturn(selfClient);
+        when(customUserUtil.loggedUserHasRole("ROLE_ADMIN")).thenReturn(false);
+        when(customUserUtil.getLoggedUserId()).thenReturn(selfClient.getId());
 
         Long userId = selfClient.getId();
 
@@ -61,7 +64,8 @@ public class AuthServiceTests {
     @Test
     public void validateSelfOrAdminThrowsForbiddenExceptionWhenClientOtherLogged() {
 
-        when(userService.authenticated()).thenReturn(selfClient);
+        when(customUserUtil.loggedUserHasRole("ROLE_ADMIN")).thenReturn(false);
+        when(customUserUtil.getLoggedUserId()).thenReturn(selfClient.getId());
 
         Long userId = otherClient.getId();
 
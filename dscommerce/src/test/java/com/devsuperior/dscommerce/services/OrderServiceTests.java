@@ -1,11 +1,11 @@
 package com.devsuperior.dscommerce.services;
 
+import com.devsuperior.dscommerce.dto.ClientDTO;
 import com.devsuperior.dscommerce.dto.OrderDTO;
 import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.Product;
 import com.devsuperior.dscommerce.entities.User;
-import com.devsuperior.dscommerce.repositories.OrderItemRepository;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
@@ -13,7 +13,6 @@ import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
 import com.devsuperior.dscommerce.tests.OrderFactory;
 import com.devsuperior.dscommerce.tests.ProductFactory;
 import com.devsuperior.dscommerce.tests.UserFactory;
-import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,8 +23,9 @@ import org.mockito.Mockito;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -45,9 +45,6 @@ public class OrderServiceTests {
     @Mock
     private ProductRepository productRepository;
 
-    @Mock
-    private OrderItemRepository orderItemRepository;
-
     @Mock
     private UserService userService;
 
@@ -75,15 +72,13 @@ public class OrderServiceTests {
 
         product = ProductFactory.createProduct();
 
-        when(repository.findById(existingOrderId)).thenReturn(Optional.of(order));
-        when(repository.findById(nonExistingOrderId)).thenReturn(Optional.empty());
+        when(repository.searchWithItems(existingOrderId)).thenReturn(Optional.of(order));
+        when(repository.searchWithItems(nonExistingOrderId)).thenReturn(Optional.empty());
 
-        when(productRepository.getReferenceById(existingProductId)).thenReturn(product);
-        when(productRepository.getReferenceById(nonExistingProductId)).thenThrow(EntityNotFoundException.class);
+        when(productRepository.searchEntitiesByIds(Set.of(existingProductId))).thenReturn(List.of(product));
+        when(productRepository.searchEntitiesByIds(Set.of(nonExistingProductId))).thenReturn(List.of());
 
         when(repository.save(any())).thenReturn(order);
-
-        when(orderItemRepository.saveAll(any())).thenReturn(new ArrayList<>(order.getItems()));
     }
 
     @Test
@@ -131,7 +126,7 @@ public class OrderServiceTests {
     @Test
     public void insertShouldReturnOrderDTOWhenAdminLogged() {
 
-        when(userService.authenticated()).thenReturn(admin);
+        when(userService.authenticatedReference()).thenReturn(admin);
 
         OrderDTO result = service.insert(orderDTO);
 
@@ -141,7 +136,7 @@ public class OrderServiceTests {
     @Test
     public void insertShouldReturnOrderDTOWhenClientLogged() {
 
-        when(userService.authenticated()).thenReturn(client);
+        when(userService.authenticatedReference()).thenReturn(client);
 
         OrderDTO result = service.insert(orderDTO);
 
@@ -151,7 +146,7 @@ public class OrderServiceTests {
     @Test
     public void insertShouldThrowsUsernameNotFoundExceptionWhenUserNotLogged() {
 
-        doThrow(UsernameNotFoundException.class).when(userService).authenticated();
+        doThrow(UsernameNotFoundException.class).when(userService).authenticatedReference();
 
         order.setClient(new User());
         orderDTO = new OrderDTO(order);
@@ -162,9 +157,9 @@ public class OrderServiceTests {
     }
 
     @Test
-    public void insertShouldThrowsEntityNotFoundExceptionWhenOrderProductIdDoesNotExist() {
+    public void insertShouldThrowsResourceNotFoundExceptionWhenOrderProductIdDoesNotExist() {
 
-        when(userService.authenticated()).thenReturn(client);
+        when(userService.authenticatedReference()).thenReturn(client);
 
         product.setId(nonExistingProductId);
         OrderItem orderItem = new OrderItem(order, product, 2, 10.0);
@@ -172,9 +167,34 @@ public class OrderServiceTests {
 
         orderDTO = new OrderDTO(order);
 
-        Assertions.assertThrows(EntityNotFoundException.class, () -> {
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
             OrderDTO result = service.insert(orderDTO);
         });
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void insertShouldTakeClientFromUserServiceWhenClientLogged() {
+
+        when(userService.authenticatedReference()).thenReturn(client);
+        when(userService.authenticatedClient(client)).thenReturn(new ClientDTO(client.getId(), "Maria Brown"));
+
+        OrderDTO result = service.insert(orderDTO);
+
+        Assertions.assertEquals(client.getId(), result.getClient().getId());
+        Assertions.assertEquals("Maria Brown", result.getClient().getName());
+    }
+
+    @Test
+    public void insertShouldResolveProductsInOneQueryWhenClientLogged() {
+
+        when(userService.authenticatedReference()).thenReturn(client);
+
+        OrderDTO result = service.insert(orderDTO);
+
+        Assertions.assertNotNull(result);
+        verify(productRepository, times(1)).searchEntitiesByIds(any());
+        verify(productRepository, never()).getReferenceById(any());
     }
 
 }
@@ -1,11 +1,28 @@
 package com.devsuperior.dscommerce.services;
 
+import com.devsuperior.dscommerce.dto.CategoryFacetDTO;
+import com.devsuperior.dscommerce.dto.ProductBatchDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.ProductSliceDTO;
+import com.devsuperior.dscommerce.dto.ProductSuggestionDTO;
+import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.search.ProductCategoryIndex;
+import com.devsuperior.dscommerce.services.search.ProductFuzzyIndex;
+import com.devsuperior.dscommerce.services.search.ProductIndexer;
+import com.devsuperior.dscommerce.services.search.ProductNameIndex;
+import com.devsuperior.dscommerce.services.search.ProductNameTrie;
+import com.devsuperior.dscommerce.services.search.ProductPriceIndex;
+import com.devsuperior.dscommerce.services.search.ProductSearchMetrics;
+import com.devsuperior.dscommerce.services.search.ProductTextIndex;
+import com.devsuperior.dscommerce.services.search.Ranking;
+import com.devsuperior.dscommerce.util.BoundedCache;
 import com.devsuperior.dscommerce.tests.ProductFactory;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Assertions;
@@ -14,17 +31,27 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -36,11 +63,42 @@ public class ProductServiceTests {
     @Mock
     private ProductRepository repository;
 
+    @Mock
+    private ProductNameIndex nameIndex;
+
+    @Mock
+    private ProductCategoryIndex categoryIndex;
+
+    @Mock
+    private ProductPriceIndex priceIndex;
+
+    @Mock
+    private ProductNameTrie nameTrie;
+
+    @Mock
+    private ProductFuzzyIndex fuzzyIndex;
+
+    @Mock
+    private ProductTextIndex textIndex;
+
+    @Mock
+    private ProductIndexer indexer;
+
+    @Mock
+    private ProductSearchMetrics searchMetrics;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Spy
+    private BoundedCache<Long, ProductDTO> productCache = new BoundedCache<>("cache.product", 100, Duration.ofMinutes(10));
+
     private Long existingProductId, nonExistingProductId, dependentProductId;
     private Product product;
     private String productName;
     private ProductDTO productDTO;
-    private PageImpl<Product> page;
+    private ProductMinDTO productMinDTO;
+    private PageImpl<ProductMinDTO> page;
 
     @BeforeEach
     void setUp() throws Exception {
@@ -52,12 +110,49 @@ public class ProductServiceTests {
 
         product = ProductFactory.createProduct(productName);
         productDTO = new ProductDTO(product);
-        page = new PageImpl<>(List.of(product));
+        productMinDTO = new ProductMinDTO(product);
+        page = new PageImpl<>(List.of(productMinDTO));
 
-        when(repository.findById(existingProductId)).thenReturn(Optional.of(product));
-        when(repository.findById(nonExistingProductId)).thenReturn(Optional.empty());
+        when(repository.searchWithCategories(existingProductId)).thenReturn(Optional.of(product));
+        when(repository.searchWithCategories(nonExistingProductId)).thenReturn(Optional.empty());
+        when(repository.searchWithCategoriesByIds(any())).thenReturn(List.of(product));
 
         when(repository.search(any(), (Pageable)any())).thenReturn(page);
+        when(repository.searchAllByIds(any())).thenReturn(List.of(productMinDTO));
+
+        when(nameIndex.searchAfter(any(), any(), any(), anyInt())).thenReturn(List.of(existingProductId));
+
+        when(nameIndex.search(productName)).thenReturn(List.of(existingProductId));
+        when(nameIndex.candidates(any())).thenCallRealMethod();
+        when(nameIndex.canSort(any())).thenCallRealMethod();
+        when(nameIndex.sort(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        when(categoryIndex.search(List.of(1L))).thenReturn(bitSet(existingProductId, 5L));
+        when(categoryIndex.search(List.of(2L))).thenReturn(bitSet(5L));
+        when(categoryIndex.count(any())).thenReturn(Map.of(1L, 1));
+        when(priceIndex.range(any(), any())).thenReturn(bitSet(existingProductId));
+        when(priceIndex.canSort(any())).thenCallRealMethod();
+        when(priceIndex.sorted(any(), any(), anyLong(), anyInt())).thenReturn(List.of(existingProductId));
+        when(priceIndex.size()).thenReturn(1);
+
+        when(nameTrie.suggest(eq("play"), anyInt())).thenReturn(Map.of(existingProductId, productName));
+
+        when(fuzzyIndex.search(any())).thenAnswer(invocation -> new HashMap<>(Map.of(4L, 1, 5L, 2)));
+        when(fuzzyIndex.rank(any())).thenAnswer(invocation -> {
+            Map<Long, Integer> distances = invocation.getArgument(0);
+            return distances.keySet().stream().sorted(Comparator.comparing(distances::get)).toList();
+        });
+
+        when(textIndex.canSort(any())).thenCallRealMethod();
+        when(textIndex.search(any(), any(), anyInt())).thenAnswer(invocation -> {
+            BitSet filter = invocation.getArgument(1);
+            List<Long> ids = Stream.of(5L, existingProductId)
+                    .filter(id -> filter == null || filter.get(id.intValue()))
+                    .toList();
+            return new Ranking(ids, ids.size());
+        });
+
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category(1L, "Livros"), new Category(2L, "Eletrônicos")));
 
         when(repository.save(any())).thenReturn(product);
 
@@ -91,18 +186,428 @@ public class ProductServiceTests {
 
     }
 
+    @Test
+    public void findVersionShouldQueryOnlyVersionWhenProductIsNotCached() {
+
+        when(repository.searchVersion(existingProductId)).thenReturn(Optional.of(3));
+
+        Integer result = service.findVersion(existingProductId);
+
+        Assertions.assertEquals(3, result);
+        verify(repository, never()).searchWithCategories(any());
+    }
+
+    @Test
+    public void findVersionShouldNotHitDatabaseWhenProductIsCached() {
+
+        service.findById(existingProductId);
+
+        Integer result = service.findVersion(existingProductId);
+
+        Assertions.assertEquals(productDTO.getVersion(), result);
+        verify(repository, never()).searchVersion(any());
+    }
+
+    @Test
+    public void findVersionShouldThrowResourceNotFoundExceptionWhenIdDoesNotExist() {
+
+        when(repository.searchVersion(nonExistingProductId)).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            service.findVersion(nonExistingProductId);
+        });
+    }
+
+    @Test
+    public void findByIdShouldHitDatabaseOnceWhenCalledTwice() {
+
+        service.findById(existingProductId);
+        ProductDTO result = service.findById(existingProductId);
+
+        Assertions.assertEquals(result.getId(), existingProductId);
+        verify(repository, times(1)).searchWithCategories(existingProductId);
+        Assertions.assertEquals(productCache.getHits(), 1L);
+        Assertions.assertEquals(productCache.getMisses(), 1L);
+    }
+
+    @Test
+    public void findAllByIdsShouldReturnProductsInRequestedOrderAndReportMissingIds() {
+
+        ProductBatchDTO result = service.findAllByIds(List.of(nonExistingProductId, existingProductId, existingProductId));
+
+        Assertions.assertEquals(1, result.getContent().size());
+        Assertions.assertEquals(existingProductId, result.getContent().get(0).getId());
+        Assertions.assertEquals(List.of(nonExistingProductId), result.getMissing());
+        verify(repository, times(1)).searchWithCategoriesByIds(List.of(nonExistingProductId, existingProductId));
+    }
+
+    @Test
+    public void findAllByIdsShouldQueryOnlyIdsNotInCache() {
+
+        service.findById(existingProductId);
+
+        ProductBatchDTO result = service.findAllByIds(List.of(existingProductId, nonExistingProductId));
+
+        Assertions.assertEquals(existingProductId, result.getContent().get(0).getId());
+        verify(repository, times(1)).searchWithCategoriesByIds(List.of(nonExistingProductId));
+    }
+
+    @Test
+    public void findAllByIdsShouldNotCacheProductEvictedDuringQuery() {
+
+        when(repository.searchWithCategoriesByIds(any())).thenAnswer(invocation -> {
+            productCache.remove(existingProductId);
+            return List.of(product);
+        });
+
+        ProductBatchDTO result = service.findAllByIds(List.of(existingProductId));
+
+        Assertions.assertEquals(1, result.getContent().size());
+        Assertions.assertEquals(0, productCache.size());
+    }
+
+    @Test
+    public void findAllByIdsShouldThrowBadRequestExceptionWhenTooManyIds() {
+
+        List<Long> ids = LongStream.rangeClosed(1, 101).boxed().toList();
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.findAllByIds(ids);
+        });
+        verify(repository, never()).searchWithCategoriesByIds(any());
+    }
+
+    @Test
+    public void updateShouldEvictCachedProductDTO() {
+
+        service.findById(existingProductId);
+        service.update(existingProductId, productDTO);
+        service.findById(existingProductId);
+
+        verify(productCache).remove(existingProductId);
+        verify(repository, times(2)).searchWithCategories(existingProductId);
+    }
+
+    @Test
+    public void updateShouldIndexProductAndPublishCatalogChange() {
+
+        service.update(existingProductId, productDTO);
+
+        verify(indexer).put(eq(existingProductId), anyInt(), eq(productName), any(), eq(product.getPrice()), any());
+        verify(indexer).publish();
+    }
+
+    @Test
+    public void updateShouldSucceedWhenCatalogChangeCannotBePublished() {
+
+        doThrow(ArithmeticException.class).when(indexer).publish();
+
+        Assertions.assertDoesNotThrow(() -> {
+            service.update(existingProductId, productDTO);
+        });
+        verify(indexer).publish();
+    }
+
+    @Test
+    public void deleteShouldUnindexProduct() {
+
+        service.delete(existingProductId);
+
+        verify(indexer).remove(existingProductId);
+    }
+
+    @Test
+    public void deleteShouldEvictCachedProductDTO() {
+
+        service.findById(existingProductId);
+        service.delete(existingProductId);
+
+        Assertions.assertEquals(productCache.size(), 0);
+    }
+
     @Test
     public void findAllShouldReturnPagedProductMinDTO() {
 
         Pageable pageable = PageRequest.of(0, 12);
 
-        Page<ProductMinDTO> result = service.findAll(productName, pageable);
+        Page<ProductMinDTO> result = service.findAll(productName, List.of(), null, null, pageable);
 
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(result.getSize(), 1);
+        Assertions.assertEquals(result.getNumberOfElements(), 1);
         Assertions.assertEquals(result.iterator().next().getName(), productName);
     }
 
+    @Test
+    public void findAllShouldHydrateOnlyIndexedIdsWhenNameIsNotEmpty() {
+
+        Pageable pageable = PageRequest.of(0, 12, Sort.by("name"));
+
+        Page<ProductMinDTO> result = service.findAll(productName, List.of(), null, null, pageable);
+
+        Assertions.assertEquals(result.getTotalElements(), 1L);
+        Assertions.assertEquals(result.iterator().next().getId(), existingProductId);
+        verify(repository).searchAllByIds(List.of(existingProductId));
+        verify(repository, never()).search(any(), any());
+    }
+
+    @Test
+    public void findAllShouldThrowBadRequestExceptionWhenSortIsNotSupportedByIndex() {
+
+        Pageable pageable = PageRequest.of(0, 12, Sort.by("imgUrl"));
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.findAll(productName, List.of(), null, null, pageable);
+        });
+        verify(repository, never()).searchAllByIds(any());
+    }
+
+    @Test
+    public void findAllShouldSortInDatabaseWhenSortIsNotSupportedByIndexAndNothingIsFiltered() {
+
+        Pageable pageable = PageRequest.of(0, 12, Sort.by("imgUrl"));
+
+        Page<ProductMinDTO> result = service.findAll("", List.of(), null, null, pageable);
+
+        Assertions.assertEquals(result.getNumberOfElements(), 1);
+        verify(repository).search("", pageable);
+    }
+
+    @Test
+    public void findAllShouldSortInDatabaseWhenSortHasPriceAndOtherKeysAndNothingIsFiltered() {
+
+        Pageable pageable = PageRequest.of(0, 12, Sort.by("price", "name"));
+
+        service.findAll("", List.of(), null, null, pageable);
+
+        verify(repository).search("", pageable);
+        verify(priceIndex, never()).sorted(any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    public void findAllShouldReturnEmptyPageWhenIndexHasNoMatch() {
+
+        Pageable pageable = PageRequest.of(0, 12);
+
+        Page<ProductMinDTO> result = service.findAll("nonexisting", List.of(), null, null, pageable);
+
+        Assertions.assertTrue(result.isEmpty());
+        verify(repository, never()).searchAllByIds(any());
+    }
+
+    @Test
+    public void findAllShouldKeepOnlyNameMatchesInSelectedCategories() {
+
+        Pageable pageable = PageRequest.of(0, 12);
+
+        Page<ProductMinDTO> result = service.findAll(productName, List.of(1L), null, null, pageable);
+
+        Assertions.assertEquals(result.getTotalElements(), 1L);
+        verify(repository).searchAllByIds(List.of(existingProductId));
+    }
+
+    @Test
+    public void findAllShouldReturnEmptyPageWhenNoNameMatchIsInSelectedCategories() {
+
+        Pageable pageable = PageRequest.of(0, 12);
+
+        Page<ProductMinDTO> result = service.findAll(productName, List.of(2L), null, null, pageable);
+
+        Assertions.assertTrue(result.isEmpty());
+        verify(repository, never()).searchAllByIds(any());
+    }
+
+    @Test
+    public void findAllShouldKeepOnlyNameMatchesInPriceRange() {
+
+        Pageable pageable = PageRequest.of(0, 12);
+
+        Page<ProductMinDTO> result = service.findAll(productName, List.of(), 100.0, 1000.0, pageable);
+
+        Assertions.assertEquals(result.getTotalElements(), 1L);
+        verify(priceIndex).range(100.0, 1000.0);
+        verify(repository).searchAllByIds(List.of(existingProductId));
+    }
+
+    @Test
+    public void findAllShouldReturnEmptyPageWhenNoCategoryMatchIsInPriceRange() {
+
+        Pageable pageable = PageRequest.of(0, 12);
+
+        Page<ProductMinDTO> result = service.findAll("", List.of(2L), 100.0, null, pageable);
+
+        Assertions.assertTrue(result.isEmpty());
+        verify(repository, never()).searchAllByIds(any());
+    }
+
+    @Test
+    public void findAllShouldThrowBadRequestExceptionWhenMinPriceIsGreaterThanMaxPrice() {
+
+        Pageable pageable = PageRequest.of(0, 12);
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.findAll(productName, List.of(), 1000.0, 100.0, pageable);
+        });
+    }
+
+    @Test
+    public void findAllShouldWalkPriceIndexWhenSortIsByPrice() {
+
+        Pageable pageable = PageRequest.of(1, 12, Sort.by(Sort.Direction.DESC, "price"));
+
+        Page<ProductMinDTO> result = service.findAll("", List.of(), null, null, pageable);
+
+        verify(priceIndex).sorted(null, Sort.Direction.DESC, 12L, 12);
+        verify(repository).searchAllByIds(List.of(existingProductId));
+        verify(repository, never()).search(any(), any());
+        Assertions.assertEquals(1, result.getNumberOfElements());
+    }
+
+    @Test
+    public void findAllFuzzyShouldRankExactMatchesBeforeFuzzyMatches() {
+
+        Pageable pageable = PageRequest.of(0, 2);
+
+        Page<ProductMinDTO> result = service.findAllFuzzy(productName, List.of(), null, null, pageable);
+
+        Assertions.assertEquals(3L, result.getTotalElements());
+        verify(repository).searchAllByIds(List.of(existingProductId, 4L));
+        verify(searchMetrics).recordFuzzy(anyLong());
+        verify(searchMetrics, never()).recordExact(anyLong());
+    }
+
+    @Test
+    public void findAllFuzzyShouldApplyCategoryFilter() {
+
+        Pageable pageable = PageRequest.of(0, 12);
+
+        service.findAllFuzzy(productName, List.of(1L), null, null, pageable);
+
+        verify(repository).searchAllByIds(List.of(existingProductId, 5L));
+    }
+
+    @Test
+    public void findAllShouldRecordExactLatencyWhenNameIsNotEmpty() {
+
+        service.findAll(productName, List.of(), null, null, PageRequest.of(0, 12));
+        service.findAll("", List.of(), null, null, PageRequest.of(0, 12));
+
+        verify(searchMetrics, times(1)).recordExact(anyLong());
+        verify(searchMetrics, never()).recordFuzzy(anyLong());
+    }
+
+    @Test
+    public void findAllShouldRankByScoreWhenSortIsByRelevance() {
+
+        Pageable pageable = PageRequest.of(0, 12, Sort.by(ProductTextIndex.RELEVANCE));
+
+        service.findAll(productName, List.of(), null, null, pageable);
+
+        verify(repository).searchAllByIds(List.of(5L, existingProductId));
+        verify(nameIndex, never()).search(any());
+        verify(searchMetrics).recordFullText(anyLong());
+    }
+
+    @Test
+    public void findAllShouldApplyFiltersToRelevanceResults() {
+
+        Pageable pageable = PageRequest.of(0, 12, Sort.by(ProductTextIndex.RELEVANCE));
+
+        service.findAll(productName, List.of(), 10.0, 100.0, pageable);
+
+        verify(repository).searchAllByIds(List.of(existingProductId));
+    }
+
+    @Test
+    public void findAllShouldDropRelevanceSortWhenNameIsEmpty() {
+
+        Pageable pageable = PageRequest.of(1, 12, Sort.by(ProductTextIndex.RELEVANCE));
+
+        service.findAll("", List.of(), null, null, pageable);
+
+        verify(repository).search("", PageRequest.of(1, 12));
+        verify(textIndex, never()).search(any(), any(), anyInt());
+    }
+
+    @Test
+    public void findCategoryFacetsShouldReturnCountsForCategoriesWithMatches() {
+
+        List<CategoryFacetDTO> result = service.findCategoryFacets(productName, null, null);
+
+        Assertions.assertEquals(1, result.size());
+        Assertions.assertEquals("Livros", result.get(0).getName());
+        Assertions.assertEquals(1, result.get(0).getCount());
+        verify(categoryIndex).count(bitSet(existingProductId));
+    }
+
+    @Test
+    public void suggestShouldReturnNamesFromTrie() {
+
+        List<ProductSuggestionDTO> result = service.suggest("play", 10);
+
+        Assertions.assertEquals(1, result.size());
+        Assertions.assertEquals(existingProductId, result.get(0).getId());
+        Assertions.assertEquals(productName, result.get(0).getName());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void suggestShouldCapSize() {
+
+        service.suggest("play", 1000);
+
+        verify(nameTrie).suggest("play", 20);
+    }
+
+    @Test
+    public void findAllAfterShouldReturnLastSliceWhenNoMoreProducts() {
+
+        ProductSliceDTO result = service.findAllAfter("", List.of(), null, null, false, "", 12);
+
+        Assertions.assertEquals(result.getContent().size(), 1);
+        Assertions.assertFalse(result.isHasNext());
+        Assertions.assertNull(result.getNext());
+    }
+
+    @Test
+    public void findAllAfterShouldReturnCursorOfLastProductWhenMoreProducts() {
+
+        Product other = ProductFactory.createProduct("Xbox");
+        other.setId(4L);
+        when(nameIndex.searchAfter(any(), any(), any(), anyInt())).thenReturn(List.of(existingProductId, 4L));
+        when(repository.searchAllByIds(any())).thenReturn(List.of(productMinDTO, new ProductMinDTO(other)));
+
+        ProductSliceDTO first = service.findAllAfter("", List.of(), null, null, false, "", 1);
+        service.findAllAfter("", List.of(), null, null, false, first.getNext(), 1);
+
+        Assertions.assertTrue(first.isHasNext());
+        verify(nameIndex).searchAfter(null, productName, existingProductId, 2);
+    }
+
+    @Test
+    public void findAllAfterShouldSearchOnlyProductsMatchingNameAndFilters() {
+
+        service.findAllAfter(productName, List.of(1L), 10.0, null, false, "", 12);
+
+        verify(nameIndex).searchAfter(bitSet(existingProductId), "", 0L, 13);
+    }
+
+    @Test
+    public void findAllAfterShouldThrowBadRequestExceptionWhenFuzzy() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.findAllAfter(productName, List.of(), null, null, true, "", 12);
+        });
+        verify(nameIndex, never()).searchAfter(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void findAllAfterShouldThrowBadRequestExceptionWhenCursorIsInvalid() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.findAllAfter("", List.of(), null, null, false, "not-a-cursor", 12);
+        });
+    }
+
     @Test
     public void insertShouldReturnProductDTO() {
 
@@ -153,4 +658,12 @@ public class ProductServiceTests {
             service.delete(dependentProductId);
         });
     }
+
+    private static BitSet bitSet(Long... ids) {
+        BitSet result = new BitSet();
+        for (Long id : ids) {
+            result.set(id.intValue());
+        }
+        return result;
+    }
 }
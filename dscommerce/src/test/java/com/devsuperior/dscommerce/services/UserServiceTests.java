@@ -1,11 +1,13 @@
 package com.devsuperior.dscommerce.services;
 
+import com.devsuperior.dscommerce.dto.ClientDTO;
 import com.devsuperior.dscommerce.dto.UserDTO;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.projections.UserDetailsProjection;
 import com.devsuperior.dscommerce.repositories.UserRepository;
 import com.devsuperior.dscommerce.tests.UserDetailsFactory;
 import com.devsuperior.dscommerce.tests.UserFactory;
+import com.devsuperior.dscommerce.util.BoundedCache;
 import com.devsuperior.dscommerce.util.CustomUserUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,10 +15,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -35,6 +39,9 @@ public class UserServiceTests {
     @Mock
     private CustomUserUtil userUtil;
 
+    @Spy
+    private BoundedCache<String, UserDetails> userDetailsCache = new BoundedCache<>("cache.user-details", 100, Duration.ofSeconds(60));
+
     private String existingUsername, nonExistingUsername;
     private User user;
     private List<UserDetailsProjection> userDetails;
@@ -61,6 +68,18 @@ public class UserServiceTests {
 
         Assertions.assertNotNull(result);
         Assertions.assertEquals(result.getUsername(), existingUsername);
+        Assertions.assertEquals(1L, ((User) result).getId());
+    }
+
+    @Test
+    public void loadUserByUsernameShouldQueryOnceWhenUserIsLoadedTwice() {
+
+        UserDetails first = service.loadUserByUsername(existingUsername);
+        UserDetails second = service.loadUserByUsername(existingUsername);
+
+        Assertions.assertSame(first, second);
+        verify(repository, times(1)).searchUserAndRolesByEmail(existingUsername);
+        Assertions.assertEquals(1L, userDetailsCache.getHits());
     }
 
     @Test
@@ -71,6 +90,38 @@ public class UserServiceTests {
         });
     }
 
+    @Test
+    public void loadUserByUsernameShouldNotCacheUserDetailsWhenEvictedDuringLoad() {
+
+        when(repository.searchUserAndRolesByEmail(existingUsername)).thenAnswer(invocation -> {
+            service.evictUserDetails(existingUsername);
+            return userDetails;
+        });
+
+        UserDetails result = service.loadUserByUsername(existingUsername);
+
+        Assertions.assertEquals(existingUsername, result.getUsername());
+        Assertions.assertEquals(0, userDetailsCache.size());
+    }
+
+    @Test
+    public void updatePasswordShouldNotCacheUncommittedUserDetails() {
+
+        service.updatePassword(user, "$2a$10$newhash");
+
+        Assertions.assertEquals(0, userDetailsCache.size());
+    }
+
+    @Test
+    public void updatePasswordShouldStoreNewHashWhenUserExists() {
+
+        UserDetails result = service.updatePassword(user, "$2a$10$newhash");
+
+        verify(repository).updatePassword(existingUsername, "$2a$10$newhash");
+        verify(userDetailsCache).remove(existingUsername);
+        Assertions.assertEquals(existingUsername, result.getUsername());
+    }
+
     @Test
     public void authenticatedShouldReturnUserWhenUserExists() {
 
@@ -92,6 +143,52 @@ public class UserServiceTests {
         });
     }
 
+    @Test
+    public void authenticatedReferenceShouldReturnReferenceWhenTokenHasUserId() {
+
+        when(userUtil.getLoggedUserId()).thenReturn(1L);
+        when(repository.getReferenceById(1L)).thenReturn(user);
+
+        User result = service.authenticatedReference();
+
+        Assertions.assertSame(user, result);
+        verify(repository, never()).findByEmail(any());
+    }
+
+    @Test
+    public void authenticatedReferenceShouldThrowUsernameNotFoundExceptionWhenTokenHasNoUserId() {
+
+        when(userUtil.getLoggedUserId()).thenReturn(null);
+
+        Assertions.assertThrows(UsernameNotFoundException.class, () -> {
+            service.authenticatedReference();
+        });
+    }
+
+    @Test
+    public void authenticatedClientShouldUseNameClaimWithoutInitializingReference() {
+
+        User reference = mock(User.class);
+        when(reference.getId()).thenReturn(1L);
+        when(userUtil.getLoggedName()).thenReturn("Maria Brown");
+
+        ClientDTO result = service.authenticatedClient(reference);
+
+        Assertions.assertEquals(1L, result.getId());
+        Assertions.assertEquals("Maria Brown", result.getName());
+        verify(reference, never()).getName();
+    }
+
+    @Test
+    public void authenticatedClientShouldLoadNameWhenTokenHasNoNameClaim() {
+
+        when(userUtil.getLoggedName()).thenReturn(null);
+
+        ClientDTO result = service.authenticatedClient(user);
+
+        Assertions.assertEquals(user.getName(), result.getName());
+    }
+
     @Test
     public void findMeShouldReturnUserDTOWhenUserExists() {
 
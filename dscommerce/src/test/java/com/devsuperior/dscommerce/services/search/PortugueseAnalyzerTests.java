@@ -0,0 +1,43 @@
+package com.devsuperior.dscommerce.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class PortugueseAnalyzerTests {
+
+    @Test
+    public void analyzeShouldFoldCaseAndAccentsAndSplitOnPunctuation() {
+
+        List<String> result = PortugueseAnalyzer.analyze("Câmera-Digital, 4K!");
+
+        Assertions.assertEquals(List.of("camer", "digital", "4k"), result);
+    }
+
+    @Test
+    public void analyzeShouldDropStopwords() {
+
+        List<String> result = PortugueseAnalyzer.analyze("Livro de receitas para o dia a dia");
+
+        Assertions.assertEquals(List.of("livr", "receit", "dia", "dia"), result);
+    }
+
+    @Test
+    public void analyzeShouldReduceGenderAndPluralToSameTerm() {
+
+        Assertions.assertEquals(List.of("eletronic", "eletronic", "eletronic"),
+                PortugueseAnalyzer.analyze("Eletrônicos eletrônica ELETRONICO"));
+        Assertions.assertEquals(List.of("computador", "computador"),
+                PortugueseAnalyzer.analyze("computadores computador"));
+        Assertions.assertEquals(List.of("cartao", "cartao"), PortugueseAnalyzer.analyze("cartões cartão"));
+        Assertions.assertEquals(List.of("papel", "papel"), PortugueseAnalyzer.analyze("papéis papel"));
+    }
+
+    @Test
+    public void analyzeShouldKeepShortWords() {
+
+        Assertions.assertEquals(List.of("pc", "tv"), PortugueseAnalyzer.analyze("PC TV"));
+        Assertions.assertTrue(PortugueseAnalyzer.analyze(null).isEmpty());
+    }
+}
@@ -0,0 +1,73 @@
+package com.devsuperior.dscommerce.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+public class ProductCategoryIndexTests {
+
+    private ProductCategoryIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new ProductCategoryIndex();
+        index.put(1L, List.of(1L));
+        index.put(2L, List.of(2L, 3L));
+        index.put(3L, List.of(3L));
+        index.put(5L, List.of(1L));
+    }
+
+    @Test
+    public void searchShouldReturnProductsInAnyOfTheCategories() {
+
+        BitSet result = index.search(List.of(1L, 2L));
+
+        Assertions.assertEquals(List.of(1L, 2L, 5L), BitSets.toIds(result));
+    }
+
+    @Test
+    public void searchShouldReturnEmptyWhenCategoryDoesNotExist() {
+
+        BitSet result = index.search(List.of(100L));
+
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void countShouldReturnProductsPerCategoryOverWholeCatalogWhenCandidatesIsNull() {
+
+        Map<Long, Integer> result = index.count(null);
+
+        Assertions.assertEquals(Map.of(1L, 2, 2L, 1, 3L, 2), result);
+    }
+
+    @Test
+    public void countShouldCountOnlyCandidatesAndSkipEmptyCategories() {
+
+        Map<Long, Integer> result = index.count(BitSets.of(List.of(1L, 3L)));
+
+        Assertions.assertEquals(Map.of(1L, 1, 3L, 1), result);
+    }
+
+    @Test
+    public void putShouldMoveProductToNewCategories() {
+
+        index.put(2L, List.of(1L));
+
+        Assertions.assertEquals(List.of(1L, 2L, 5L), BitSets.toIds(index.search(List.of(1L))));
+        Assertions.assertEquals(Map.of(1L, 3, 3L, 1), index.count(null));
+    }
+
+    @Test
+    public void removeShouldDropProductFromEveryCategory() {
+
+        index.remove(2L);
+
+        Assertions.assertTrue(index.search(List.of(2L)).isEmpty());
+        Assertions.assertEquals(List.of(3L), BitSets.toIds(index.search(List.of(3L))));
+    }
+}
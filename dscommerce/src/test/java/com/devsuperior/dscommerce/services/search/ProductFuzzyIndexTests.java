@@ -0,0 +1,104 @@
+package com.devsuperior.dscommerce.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class ProductFuzzyIndexTests {
+
+    private ProductFuzzyIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new ProductFuzzyIndex();
+        index.put(1L, "The Lord of the Rings");
+        index.put(2L, "Smart TV");
+        index.put(3L, "Macbook Pro");
+        index.put(4L, "PC Gamer");
+        index.put(5L, "Macbook Air Retina");
+        index.put(6L, "Câmera Digital");
+    }
+
+    @Test
+    public void searchShouldMatchWordsWithinEditDistance() {
+
+        Map<Long, Integer> result = index.search("macbok");
+
+        Assertions.assertEquals(Map.of(3L, 1, 5L, 1), result);
+    }
+
+    @Test
+    public void searchShouldMatchShortWordsWhoseTrigramsCannotFilter() {
+
+        Assertions.assertEquals(Map.of(3L, 1), index.search("pto"));
+        Assertions.assertEquals(Map.of(5L, 1), index.search("aor"));
+        Assertions.assertEquals(Map.of(6L, 1), index.search("camara"));
+        Assertions.assertEquals(Map.of(5L, 2), index.search("retnia"));
+    }
+
+    @Test
+    public void searchShouldNotMatchShortWordsBeyondMaxDistance() {
+
+        Assertions.assertTrue(index.search("xyz").isEmpty());
+        Assertions.assertTrue(index.search("camzzz").isEmpty());
+    }
+
+    @Test
+    public void searchShouldRequireEveryQueryWordAndSumDistances() {
+
+        Map<Long, Integer> result = index.search("makbok pro");
+
+        Assertions.assertEquals(Map.of(3L, 2), result);
+    }
+
+    @Test
+    public void searchShouldIgnoreCaseAndAccents() {
+
+        Assertions.assertEquals(Map.of(6L, 0), index.search("CAMERA DIGITAL"));
+        Assertions.assertEquals(Map.of(6L, 1), index.search("camra"));
+    }
+
+    @Test
+    public void searchShouldNotMatchBeyondMaxDistance() {
+
+        Assertions.assertTrue(index.search("mcbk").isEmpty());
+        Assertions.assertTrue(index.search("tx").isEmpty());
+    }
+
+    @Test
+    public void rankShouldOrderByDistanceThenFewerWordsThenId() {
+
+        List<Long> result = index.rank(Map.of(5L, 1, 3L, 1, 2L, 0, 1L, 2));
+
+        Assertions.assertEquals(List.of(2L, 3L, 5L, 1L), result);
+    }
+
+    @Test
+    public void putShouldReplacePreviousWords() {
+
+        index.put(3L, "Notebook Gamer");
+
+        Assertions.assertEquals(Map.of(5L, 1), index.search("macbok"));
+        Assertions.assertEquals(Map.of(3L, 1), index.search("notebok"));
+    }
+
+    @Test
+    public void removeShouldDropWordsNoLongerUsed() {
+
+        index.remove(4L);
+
+        Assertions.assertTrue(index.search("gamer").isEmpty());
+        Assertions.assertTrue(index.search("pc").isEmpty());
+    }
+
+    @Test
+    public void distanceShouldStopAboveMax() {
+
+        Assertions.assertEquals(1, ProductFuzzyIndex.distance("macbok", "macbook", 2));
+        Assertions.assertEquals(2, ProductFuzzyIndex.distance("gamer", "gaming", 1));
+        Assertions.assertEquals(3, ProductFuzzyIndex.distance("a", "abcd", 2));
+    }
+}
@@ -0,0 +1,227 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.entities.Catalog;
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.projections.ProductVersionProjection;
+import com.devsuperior.dscommerce.repositories.CatalogRepository;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.util.CatalogVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+public class ProductIndexerTests {
+
+    @InjectMocks
+    private ProductIndexer indexer;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CatalogRepository catalogRepository;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private ProductNameIndex nameIndex;
+
+    @Mock
+    private ProductNameTrie nameTrie;
+
+    @Mock
+    private ProductFuzzyIndex fuzzyIndex;
+
+    @Mock
+    private ProductTextIndex textIndex;
+
+    @Mock
+    private ProductPriceIndex priceIndex;
+
+    @Mock
+    private ProductCategoryIndex categoryIndex;
+
+    @Test
+    public void putShouldUpdateEveryIndex() {
+
+        indexer.put(1L, 0, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+
+        verify(nameIndex).put(1L, "PC Gamer");
+        verify(nameTrie).put(1L, "PC Gamer");
+        verify(fuzzyIndex).put(1L, "PC Gamer");
+        verify(textIndex).put(1L, 0, "PC Gamer", "Lorem ipsum");
+        verify(priceIndex).put(1L, 1200.0);
+        verify(categoryIndex).put(1L, List.of(3L));
+    }
+
+    @Test
+    public void putShouldUpdateOtherIndexesWhenOneIndexFails() {
+
+        doThrow(ArithmeticException.class).when(textIndex).put(any(), anyInt(), any(), any());
+
+        Assertions.assertDoesNotThrow(() -> {
+            indexer.put(1L, 0, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+        });
+        verify(nameIndex).put(1L, "PC Gamer");
+        verify(priceIndex).put(1L, 1200.0);
+        verify(categoryIndex).put(eq(1L), any());
+    }
+
+    @Test
+    public void putShouldSkipVersionOlderThanIndexedOne() {
+
+        indexer.put(1L, 2, "PC Gamer Pro", "Lorem ipsum", 1300.0, List.of(3L));
+        indexer.put(1L, 1, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+
+        verify(nameIndex).put(1L, "PC Gamer Pro");
+        verify(nameIndex, never()).put(1L, "PC Gamer");
+    }
+
+    @Test
+    public void putShouldNotIndexProductAgainWhenRemoveWasIndexedFirst() {
+
+        indexer.remove(1L);
+        indexer.put(1L, 0, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+
+        verify(nameIndex).remove(1L);
+        verify(nameIndex, never()).put(any(), any());
+    }
+
+    @Test
+    public void putShouldTrackVersionsOfIdsBeyondInitialCapacity() {
+
+        indexer.put(1000L, 1, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+        indexer.put(1000L, 1, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+        indexer.put(17L, 0, "Macbook Pro", "Lorem ipsum", 1250.0, List.of(3L));
+
+        verify(nameIndex, times(1)).put(1000L, "PC Gamer");
+        verify(nameIndex).put(17L, "Macbook Pro");
+    }
+
+    @Test
+    public void putShouldAdvanceCatalogVersionOnlyWhenApplied() {
+
+        indexer.put(1L, 1, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+        indexer.put(1L, 0, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+
+        verify(catalogVersion, times(1)).advance();
+    }
+
+    @Test
+    public void rebuildShouldRebuildEveryIndexAndSkipWritesAlreadyLoaded() {
+
+        when(catalogRepository.searchVersion(Catalog.ID)).thenReturn(Optional.of(4L));
+        when(productRepository.searchAllVersions()).thenReturn(List.of(version(1L, 2)));
+
+        indexer.rebuild();
+        indexer.put(1L, 2, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+
+        verify(nameIndex).rebuild();
+        verify(textIndex).rebuild();
+        verify(categoryIndex).rebuild();
+        verify(nameIndex, never()).put(any(), any());
+    }
+
+    @Test
+    public void syncShouldDoNothingWhenCatalogVersionDidNotMove() {
+
+        when(catalogRepository.searchVersion(Catalog.ID)).thenReturn(Optional.of(4L));
+        when(productRepository.searchAllVersions()).thenReturn(List.of(version(1L, 0)));
+        indexer.rebuild();
+
+        indexer.sync();
+
+        verify(productRepository, times(1)).searchAllVersions();
+        verify(productRepository, never()).searchWithCategoriesByIds(any());
+    }
+
+    @Test
+    public void syncShouldIndexChangedProductsAndRemoveDeletedOnes() {
+
+        when(catalogRepository.searchVersion(Catalog.ID)).thenReturn(Optional.of(4L)).thenReturn(Optional.of(6L));
+        when(productRepository.searchAllVersions())
+                .thenReturn(List.of(version(1L, 0), version(2L, 0), version(3L, 0)))
+                .thenReturn(List.of(version(1L, 0), version(2L, 1), version(4L, 0)));
+        when(productRepository.searchWithCategoriesByIds(List.of(2L, 4L)))
+                .thenReturn(List.of(product(2L, 1, "Smart TV"), product(4L, 0, "PC Gamer")));
+        indexer.rebuild();
+
+        indexer.sync();
+
+        verify(nameIndex).put(2L, "Smart TV");
+        verify(nameIndex).put(4L, "PC Gamer");
+        verify(nameIndex).remove(3L);
+        verify(nameIndex, never()).remove(1L);
+        verify(categoryIndex).put(4L, List.of(3L));
+    }
+
+    @Test
+    public void syncShouldKeepProductIndexedHereAfterVersionsWereRead() {
+
+        when(catalogRepository.searchVersion(Catalog.ID)).thenReturn(Optional.of(4L)).thenReturn(Optional.of(5L));
+        when(productRepository.searchAllVersions()).thenReturn(List.of(version(1L, 0)));
+        indexer.rebuild();
+        // product 2 is inserted here while the versions are read, before its row is visible to the read
+        when(productRepository.searchAllVersions()).thenAnswer(invocation -> {
+            indexer.put(2L, 0, "PC Gamer", "Lorem ipsum", 1200.0, List.of(3L));
+            return List.of(version(1L, 0));
+        });
+
+        indexer.sync();
+
+        verify(nameIndex, never()).remove(any());
+    }
+
+    @Test
+    public void publishShouldCreateCatalogWhenItDoesNotExist() {
+
+        when(catalogRepository.incrementVersion(Catalog.ID)).thenReturn(0);
+
+        indexer.publish();
+
+        verify(catalogRepository).save(any());
+    }
+
+    @Test
+    public void publishShouldNotCreateCatalogWhenItExists() {
+
+        when(catalogRepository.incrementVersion(Catalog.ID)).thenReturn(1);
+
+        indexer.publish();
+
+        verify(catalogRepository, never()).save(any());
+    }
+
+    private static ProductVersionProjection version(Long id, Integer version) {
+        return new ProductVersionProjection() {
+            public Long getId() {
+                return id;
+            }
+
+            public Integer getVersion() {
+                return version;
+            }
+        };
+    }
+
+    private static Product product(Long id, Integer version, String name) {
+        Product product = new Product(id, name, "Lorem ipsum", 1200.0, null);
+        product.getCategories().add(new Category(3L, null));
+        ReflectionTestUtils.setField(product, "version", version);
+        return product;
+    }
+}
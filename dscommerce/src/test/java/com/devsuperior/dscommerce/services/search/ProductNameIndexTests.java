@@ -0,0 +1,131 @@
+package com.devsuperior.dscommerce.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class ProductNameIndexTests {
+
+    private ProductNameIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new ProductNameIndex();
+        index.put(1L, "The Lord of the Rings");
+        index.put(2L, "Smart TV");
+        index.put(3L, "Macbook Pro");
+        index.put(4L, "PC Gamer");
+        index.put(6L, "PC Gamer Ex");
+    }
+
+    @Test
+    public void searchShouldReturnIdsWhenNameContainsTextIgnoringCase() {
+
+        List<Long> result = index.search("gAmEr");
+
+        Assertions.assertEquals(List.of(4L, 6L), result);
+    }
+
+    @Test
+    public void searchShouldReturnIdsWhenTextIsShorterThanGram() {
+
+        List<Long> result = index.search("tv");
+
+        Assertions.assertEquals(List.of(2L), result);
+    }
+
+    @Test
+    public void searchShouldReturnIdsWhenTextIsSingleLetterAndForgetThemWhenRemoved() {
+
+        Assertions.assertEquals(List.of(3L, 4L, 6L), index.search("c"));
+
+        index.remove(3L);
+
+        Assertions.assertEquals(List.of(4L, 6L), index.search("c"));
+        Assertions.assertTrue(index.search("k").isEmpty());
+    }
+
+    @Test
+    public void searchShouldNotReturnIdsWhenGramsMatchButTextDoesNot() {
+
+        List<Long> result = index.search("Pro Mac");
+
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void putShouldReplaceNameWhenIdAlreadyIndexed() {
+
+        index.put(3L, "Macbook Air");
+
+        Assertions.assertTrue(index.search("Pro").isEmpty());
+        Assertions.assertEquals(List.of(3L), index.search("Air"));
+    }
+
+    @Test
+    public void removeShouldDropIdFromResults() {
+
+        index.remove(4L);
+
+        Assertions.assertEquals(List.of(6L), index.search("Gamer"));
+        Assertions.assertEquals(4, index.size());
+    }
+
+    @Test
+    public void sortShouldOrderIdsByNameWhenSortedByName() {
+
+        List<Long> result = index.sort(List.of(1L, 2L, 3L, 4L), Sort.by("name").descending());
+
+        Assertions.assertEquals(List.of(1L, 2L, 4L, 3L), result);
+    }
+
+    @Test
+    public void searchAfterShouldReturnIdsAfterKeyInNameOrder() {
+
+        index.put(5L, "PC Gamer");
+        BitSet candidates = BitSets.of(index.search("Gamer"));
+
+        Assertions.assertEquals(List.of(4L, 5L), index.searchAfter(candidates, "", 0L, 2));
+        Assertions.assertEquals(List.of(5L, 6L), index.searchAfter(candidates, "PC Gamer", 4L, 2));
+        Assertions.assertTrue(index.searchAfter(candidates, "PC Gamer Ex", 6L, 2).isEmpty());
+    }
+
+    @Test
+    public void searchAfterShouldWalkEveryProductInNameOrderWhenCandidatesAreNull() {
+
+        Assertions.assertEquals(List.of(3L, 4L, 6L), index.searchAfter(null, "", 0L, 3));
+        Assertions.assertEquals(List.of(2L, 1L), index.searchAfter(null, "PC Gamer Ex", 6L, 3));
+    }
+
+    @Test
+    public void searchAfterShouldSelectPageAmongFewCandidatesInNameOrder() {
+
+        for (long id = 10; id < 100; id++) {
+            index.put(id, "Produto " + id);
+        }
+        BitSet candidates = BitSets.of(List.of(1L, 2L, 6L));
+
+        Assertions.assertEquals(List.of(6L, 2L), index.searchAfter(candidates, "", 0L, 2));
+        Assertions.assertEquals(List.of(2L, 1L), index.searchAfter(candidates, "PC Gamer Ex", 6L, 2));
+    }
+
+    @Test
+    public void searchAfterShouldForgetRemovedAndRenamedProducts() {
+
+        index.remove(4L);
+        index.put(3L, "Zune");
+
+        Assertions.assertEquals(List.of(6L, 2L, 1L, 3L), index.searchAfter(null, "", 0L, 10));
+    }
+
+    @Test
+    public void canSortShouldReturnFalseWhenSortedByOtherProperty() {
+
+        Assertions.assertTrue(index.canSort(Sort.by("name", "id")));
+        Assertions.assertFalse(index.canSort(Sort.by("price")));
+    }
+}
@@ -0,0 +1,88 @@
+package com.devsuperior.dscommerce.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class ProductNameTrieTests {
+
+    private ProductNameTrie trie;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        trie = new ProductNameTrie();
+        trie.put(1L, "Eletrônicos Básicos");
+        trie.put(2L, "Eletrodoméstico");
+        trie.put(3L, "PC Gamer");
+        trie.put(4L, "PC Gamer Alfa");
+        trie.put(5L, "Smart TV");
+    }
+
+    @Test
+    public void suggestShouldIgnoreCaseAndAccents() {
+
+        Map<Long, String> result = trie.suggest("ELETRO", 10);
+
+        Assertions.assertEquals(List.of(2L, 1L), List.copyOf(result.keySet()));
+        Assertions.assertEquals("Eletrônicos Básicos", result.get(1L));
+        Assertions.assertEquals(List.of(1L), List.copyOf(trie.suggest("eletrôn", 10).keySet()));
+    }
+
+    @Test
+    public void suggestShouldMatchPrefixOfAnyWord() {
+
+        Map<Long, String> result = trie.suggest("basic", 10);
+
+        Assertions.assertEquals(List.of(1L), List.copyOf(result.keySet()));
+        Assertions.assertEquals(List.of(3L, 4L), List.copyOf(trie.suggest("gamer", 10).keySet()));
+    }
+
+    @Test
+    public void suggestShouldMatchAcrossWords() {
+
+        Assertions.assertEquals(List.of(4L), List.copyOf(trie.suggest("pc  gamer a", 10).keySet()));
+    }
+
+    @Test
+    public void suggestShouldReturnEachProductOnceUpToLimit() {
+
+        Map<Long, String> result = trie.suggest("pc", 10);
+
+        Assertions.assertEquals(List.of(3L, 4L), List.copyOf(result.keySet()));
+        Assertions.assertEquals(List.of(3L), List.copyOf(trie.suggest("pc", 1).keySet()));
+    }
+
+    @Test
+    public void suggestShouldReturnEmptyWhenPrefixIsBlankOrUnknown() {
+
+        Assertions.assertTrue(trie.suggest("  ", 10).isEmpty());
+        Assertions.assertTrue(trie.suggest("xbox", 10).isEmpty());
+        Assertions.assertTrue(trie.suggest("eletrox", 10).isEmpty());
+    }
+
+    @Test
+    public void putShouldReplacePreviousName() {
+
+        trie.put(5L, "Smartphone");
+
+        Assertions.assertEquals(List.of(5L), List.copyOf(trie.suggest("smartp", 10).keySet()));
+        Assertions.assertTrue(trie.suggest("tv", 10).isEmpty());
+        Assertions.assertEquals(5, trie.size());
+    }
+
+    @Test
+    public void removeShouldKeepOtherProductsSharingThePrefix() {
+
+        trie.remove(1L);
+
+        Assertions.assertEquals(List.of(2L), List.copyOf(trie.suggest("eletr", 10).keySet()));
+        Assertions.assertTrue(trie.suggest("basic", 10).isEmpty());
+
+        trie.remove(3L);
+
+        Assertions.assertEquals(List.of(4L), List.copyOf(trie.suggest("pc gamer", 10).keySet()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.devsuperior.dscommerce.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class ProductPriceIndexTests {
+
+    private ProductPriceIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new ProductPriceIndex();
+        index.put(1L, 90.5);
+        index.put(2L, 2190.0);
+        index.put(3L, 1250.0);
+        index.put(4L, 1200.0);
+        index.put(5L, 100.99);
+        index.put(6L, 1250.0);
+    }
+
+    @Test
+    public void rangeShouldIncludeBothBounds() {
+
+        BitSet result = index.range(100.99, 1250.0);
+
+        Assertions.assertEquals(List.of(3L, 4L, 5L, 6L), BitSets.toIds(result));
+    }
+
+    @Test
+    public void rangeShouldLeaveSideOpenWhenBoundIsNull() {
+
+        Assertions.assertEquals(List.of(1L, 5L), BitSets.toIds(index.range(null, 100.99)));
+        Assertions.assertEquals(List.of(2L), BitSets.toIds(index.range(1250.01, null)));
+    }
+
+    @Test
+    public void rangeShouldReturnEmptyWhenNoPriceInRange() {
+
+        Assertions.assertTrue(index.range(101.0, 1199.0).isEmpty());
+    }
+
+    @Test
+    public void sortedShouldReturnIdsInPriceOrderThenIdOrder() {
+
+        List<Long> result = index.sorted(null, Sort.Direction.ASC, 0, 10);
+
+        Assertions.assertEquals(List.of(1L, 5L, 4L, 3L, 6L, 2L), result);
+    }
+
+    @Test
+    public void sortedShouldSkipNonCandidatesAndPage() {
+
+        BitSet candidates = BitSets.of(List.of(1L, 2L, 3L, 6L));
+
+        List<Long> result = index.sorted(candidates, Sort.Direction.DESC, 1, 2);
+
+        Assertions.assertEquals(List.of(6L, 3L), result);
+    }
+
+    @Test
+    public void sortedShouldSortFewCandidatesInSameOrderAsWalk() {
+
+        for (long id = 10; id < 200; id++) {
+            index.put(id, 5000.0 + id);
+        }
+        BitSet candidates = BitSets.of(List.of(1L, 2L, 3L, 6L, 7L));
+
+        Assertions.assertEquals(List.of(1L, 3L, 6L, 2L), index.sorted(candidates, Sort.Direction.ASC, 0, 10));
+        Assertions.assertEquals(List.of(6L, 3L), index.sorted(candidates, Sort.Direction.DESC, 1, 2));
+        Assertions.assertTrue(index.sorted(candidates, Sort.Direction.ASC, 4, 10).isEmpty());
+    }
+
+    @Test
+    public void putShouldMoveProductWhenPriceChanges() {
+
+        index.put(2L, 50.0);
+
+        Assertions.assertEquals(6, index.size());
+        Assertions.assertEquals(List.of(2L, 1L), index.sorted(null, Sort.Direction.ASC, 0, 2));
+        Assertions.assertTrue(index.range(2000.0, null).isEmpty());
+    }
+
+    @Test
+    public void removeShouldDropProductFromRangesAndOrder() {
+
+        index.remove(3L);
+
+        Assertions.assertEquals(5, index.size());
+        Assertions.assertEquals(List.of(6L), BitSets.toIds(index.range(1250.0, 1250.0)));
+    }
+
+    @Test
+    public void removeShouldIgnoreIdNeverIndexed() {
+
+        index.remove(1000L);
+        index.remove(7L);
+
+        Assertions.assertEquals(6, index.size());
+    }
+
+    @Test
+    public void canSortShouldAcceptOnlyPriceOrder() {
+
+        Assertions.assertTrue(index.canSort(Sort.by(Sort.Direction.DESC, "price")));
+        Assertions.assertFalse(index.canSort(Sort.by("price", "name")));
+        Assertions.assertFalse(index.canSort(Sort.unsorted()));
+    }
+}
@@ -0,0 +1,219 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.projections.ProductTextProjection;
+import com.devsuperior.dscommerce.projections.ProductVersionProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProductTextIndexTests {
+
+    private ProductTextIndex index;
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new ProductTextIndex();
+        index.put(1L, 0, "Notebook Gamer", "Notebook com placa de vídeo dedicada");
+        index.put(2L, 0, "Mouse sem fio", "Mouse para notebook e computador");
+        index.put(3L, 0, "Cadeira Gamer", "Cadeira ergonômica para jogos");
+        index.put(4L, 0, "Livro de receitas", "Receitas brasileiras para o dia a dia");
+        directory = Files.createTempDirectory("text-index");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void searchShouldMatchNameAndDescription() {
+
+        Ranking result = index.search("notebooks", null, 10);
+
+        Assertions.assertEquals(List.of(1L, 2L), result.getIds());
+        Assertions.assertEquals(2, result.getTotal());
+    }
+
+    @Test
+    public void searchShouldRankNameHitsAboveDescriptionHits() {
+
+        Ranking result = index.search("notebook", null, 10);
+
+        Assertions.assertEquals(1L, result.getIds().get(0));
+    }
+
+    @Test
+    public void searchShouldRankProductsMatchingMoreTermsFirst() {
+
+        List<Long> result = index.search("cadeira gamer", null, 10).getIds();
+
+        Assertions.assertEquals(List.of(3L, 1L), result);
+    }
+
+    @Test
+    public void searchShouldKeepOnlyBestUpToLimitAndCountEveryMatch() {
+
+        Ranking result = index.search("notebook gamer", null, 1);
+
+        Assertions.assertEquals(List.of(1L), result.getIds());
+        Assertions.assertEquals(3, result.getTotal());
+    }
+
+    @Test
+    public void searchShouldKeepOnlyProductsInFilter() {
+
+        BitSet filter = BitSets.of(List.of(2L, 3L));
+
+        Ranking result = index.search("notebook gamer", filter, 10);
+
+        Assertions.assertEquals(List.of(3L, 2L), result.getIds());
+        Assertions.assertEquals(2, result.getTotal());
+    }
+
+    @Test
+    public void searchShouldIgnoreStopwordsAndUnknownTerms() {
+
+        Assertions.assertEquals(0, index.search("para o de", null, 10).getTotal());
+        Assertions.assertEquals(0, index.search("geladeira", null, 10).getTotal());
+    }
+
+    @Test
+    public void putShouldReplacePreviousText() {
+
+        index.put(2L, 1, "Teclado mecânico", "Teclado para computador");
+
+        Assertions.assertEquals(List.of(1L), index.search("notebook", null, 10).getIds());
+        Assertions.assertEquals(List.of(2L), index.search("teclados", null, 10).getIds());
+        Assertions.assertEquals(4, index.size());
+    }
+
+    @Test
+    public void removeShouldDropProductFromResults() {
+
+        index.remove(3L);
+
+        Assertions.assertEquals(List.of(1L), index.search("gamer", null, 10).getIds());
+        Assertions.assertEquals(3, index.size());
+    }
+
+    @Test
+    public void rebuildShouldLoadSavedSegmentAndReplayOnlyChangedProducts() {
+
+        Path path = directory.resolve("text.idx");
+        ReflectionTestUtils.setField(index, "segmentPath", path.toString());
+        index.save();
+
+        ProductRepository repository = Mockito.mock(ProductRepository.class);
+        when(repository.searchAllVersions()).thenReturn(List.of(version(1L, 0), version(2L, 1), version(3L, 0),
+                version(5L, 0)));
+        when(repository.searchTextsByIds(any())).thenReturn(List.of(
+                text(2L, 1, "Teclado mecânico", "Teclado para computador"),
+                text(5L, 0, "Monitor gamer", "Monitor para notebook")));
+        ProductTextIndex loaded = new ProductTextIndex();
+        ReflectionTestUtils.setField(loaded, "repository", repository);
+        ReflectionTestUtils.setField(loaded, "segmentPath", path.toString());
+
+        loaded.rebuild();
+
+        verify(repository, never()).searchAllTexts();
+        verify(repository).searchTextsByIds(List.of(2L, 5L));
+        Assertions.assertEquals(4, loaded.size());
+        Assertions.assertEquals(List.of(1L, 5L), loaded.search("notebook", null, 10).getIds());
+        Assertions.assertEquals(List.of(2L), loaded.search("teclado", null, 10).getIds());
+        Assertions.assertEquals(0, loaded.search("receitas", null, 10).getTotal());
+    }
+
+    @Test
+    public void saveShouldWriteSegmentAgainOnlyAfterIndexChanged() throws Exception {
+
+        Path path = directory.resolve("text.idx");
+        ReflectionTestUtils.setField(index, "segmentPath", path.toString());
+        index.save();
+        Files.delete(path);
+
+        index.save();
+        Assertions.assertFalse(Files.exists(path));
+
+        index.remove(4L);
+        index.save();
+        Assertions.assertTrue(Files.exists(path));
+    }
+
+    @Test
+    public void rebuildShouldReadEveryProductWhenSegmentIsUnreadable() throws Exception {
+
+        Path path = directory.resolve("text.idx");
+        Files.writeString(path, "not a segment");
+        ProductRepository repository = Mockito.mock(ProductRepository.class);
+        when(repository.searchAllTexts()).thenReturn(List.of(text(1L, 0, "Notebook Gamer", "Notebook")));
+        ProductTextIndex loaded = new ProductTextIndex();
+        ReflectionTestUtils.setField(loaded, "repository", repository);
+        ReflectionTestUtils.setField(loaded, "segmentPath", path.toString());
+
+        loaded.rebuild();
+
+        verify(repository, never()).searchAllVersions();
+        Assertions.assertEquals(1, loaded.size());
+    }
+
+    @Test
+    public void canSortShouldAcceptOnlyRelevance() {
+
+        Assertions.assertTrue(index.canSort(Sort.by(ProductTextIndex.RELEVANCE)));
+        Assertions.assertFalse(index.canSort(Sort.by("name")));
+        Assertions.assertFalse(index.canSort(Sort.unsorted()));
+    }
+
+    private static ProductVersionProjection version(Long id, Integer version) {
+        return new ProductVersionProjection() {
+            public Long getId() {
+                return id;
+            }
+
+            public Integer getVersion() {
+                return version;
+            }
+        };
+    }
+
+    private static ProductTextProjection text(Long id, Integer version, String name, String description) {
+        return new ProductTextProjection() {
+            public Long getId() {
+                return id;
+            }
+
+            public Integer getVersion() {
+                return version;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+}
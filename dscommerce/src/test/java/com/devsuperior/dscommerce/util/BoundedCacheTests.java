@@ -0,0 +1,128 @@
+package com.devsuperior.dscommerce.util;
+
+import com.devsuperior.dscommerce.tests.MutableClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BoundedCacheTests {
+
+    private MutableClock clock;
+    private BoundedCache<Long, String> cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clock = new MutableClock();
+        cache = new BoundedCache<>("test", 2, Duration.ofSeconds(60), clock);
+    }
+
+    @Test
+    public void getShouldReturnValueAndCountHitWhenKeyIsCached() {
+
+        cache.put(1L, "one");
+
+        Assertions.assertEquals("one", cache.get(1L));
+        Assertions.assertEquals(1L, cache.getHits());
+        Assertions.assertEquals(0L, cache.getMisses());
+    }
+
+    @Test
+    public void getShouldLoadOnlyOnceWhenKeyIsRequestedTwice() {
+
+        cache.get(1L, x -> "one");
+        String result = cache.get(1L, x -> "other");
+
+        Assertions.assertEquals("one", result);
+        Assertions.assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    public void getShouldNotCacheLoadedValueWhenKeyIsRemovedDuringLoad() {
+
+        String result = cache.get(1L, x -> {
+            cache.remove(1L);
+            return "stale";
+        });
+
+        Assertions.assertEquals("stale", result);
+        Assertions.assertNull(cache.get(1L));
+        Assertions.assertEquals("fresh", cache.get(1L, x -> "fresh"));
+        Assertions.assertEquals("fresh", cache.get(1L));
+    }
+
+    @Test
+    public void putIfNotInvalidatedShouldDropValueOnlyWhenKeyWasRemovedAfterGeneration() {
+
+        long generation = cache.generation(1L);
+        long otherGeneration = cache.generation(2L);
+        cache.remove(1L);
+
+        Assertions.assertFalse(cache.putIfNotInvalidated(1L, "one", generation));
+        Assertions.assertTrue(cache.putIfNotInvalidated(2L, "two", otherGeneration));
+        Assertions.assertNull(cache.get(1L));
+        Assertions.assertEquals("two", cache.get(2L));
+    }
+
+    @Test
+    public void getShouldReturnNullAndCountEvictionWhenEntryExpired() {
+
+        cache.put(1L, "one");
+        clock.advance(Duration.ofSeconds(61));
+
+        Assertions.assertNull(cache.get(1L));
+        Assertions.assertEquals(1L, cache.getEvictions());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void putShouldEvictLeastRecentlyUsedWhenFull() {
+
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+        cache.put(3L, "three");
+
+        Assertions.assertEquals("one", cache.get(1L));
+        Assertions.assertNull(cache.get(2L));
+        Assertions.assertEquals(1L, cache.getEvictions());
+    }
+
+    @Test
+    public void removeShouldDropEntry() {
+
+        cache.put(1L, "one");
+        cache.remove(1L);
+
+        Assertions.assertNull(cache.get(1L));
+    }
+
+    @Test
+    public void putShouldExpireEntryAtGivenInstant() {
+
+        cache.put(1L, "one", clock.instant().plusSeconds(5));
+        clock.advance(Duration.ofSeconds(6));
+
+        Assertions.assertNull(cache.get(1L));
+    }
+
+    @Test
+    public void sweepShouldRemoveOnlyExpiredEntriesAndNotifyListener() {
+
+        List<Long> evicted = new ArrayList<>();
+        cache.setEvictionListener((key, value) -> evicted.add(key));
+        cache.put(1L, "one", clock.instant().plusSeconds(5));
+        cache.put(2L, "two");
+        clock.advance(Duration.ofSeconds(6));
+
+        int result = cache.sweep();
+
+        Assertions.assertEquals(1, result);
+        Assertions.assertEquals(List.of(1L), evicted);
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(1L, cache.getEvictions());
+    }
+}
@@ -0,0 +1,42 @@
+package com.devsuperior.dscommerce.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CatalogVersionTests {
+
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        catalogVersion = new CatalogVersion();
+    }
+
+    @Test
+    public void eTagShouldStayTheSameUntilAdvanced() {
+
+        Assertions.assertEquals(catalogVersion.eTag("products"), catalogVersion.eTag("products"));
+    }
+
+    @Test
+    public void eTagShouldChangeWhenAdvanced() {
+
+        String eTag = catalogVersion.eTag("products");
+        catalogVersion.advance();
+
+        Assertions.assertNotEquals(eTag, catalogVersion.eTag("products"));
+    }
+
+    @Test
+    public void eTagShouldDifferBetweenResources() {
+
+        Assertions.assertNotEquals(catalogVersion.eTag("products"), catalogVersion.eTag("categories"));
+    }
+
+    @Test
+    public void eTagShouldDifferBetweenNodesAtSameGeneration() {
+
+        Assertions.assertNotEquals(catalogVersion.eTag("products"), new CatalogVersion().eTag("products"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.devsuperior.dscommerce.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucketRateLimiterTests {
+
+    private AtomicLong nanoTime;
+    private TokenBucketRateLimiter<String> limiter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        nanoTime = new AtomicLong(Long.MAX_VALUE - TimeUnit.SECONDS.toNanos(30));
+        limiter = new TokenBucketRateLimiter<>("username", 3, Duration.ofSeconds(10), 2, nanoTime::get);
+    }
+
+    @Test
+    public void tryAcquireShouldAllowBurstUpToCapacityAndThenReturnWait() {
+
+        Assertions.assertEquals(0L, limiter.tryAcquire("maria@gmail.com"));
+        Assertions.assertEquals(0L, limiter.tryAcquire("maria@gmail.com"));
+        Assertions.assertEquals(0L, limiter.tryAcquire("maria@gmail.com"));
+
+        long wait = limiter.tryAcquire("maria@gmail.com");
+
+        Assertions.assertEquals(TimeUnit.SECONDS.toNanos(10), wait);
+        Assertions.assertEquals(0L, limiter.tryAcquire("alex@gmail.com"));
+        Assertions.assertEquals(4L, limiter.getMetrics().get("allowed"));
+        Assertions.assertEquals(1L, limiter.getMetrics().get("rejected"));
+    }
+
+    @Test
+    public void tryAcquireShouldRefillOneTokenPerIntervalAcrossNanoTimeOverflow() {
+
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("maria@gmail.com");
+        }
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        Assertions.assertEquals(0L, limiter.tryAcquire("maria@gmail.com"));
+        Assertions.assertTrue(limiter.tryAcquire("maria@gmail.com") > 0L);
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        Assertions.assertTrue(nanoTime.get() < 0L);
+        Assertions.assertEquals(0L, limiter.tryAcquire("maria@gmail.com"));
+    }
+
+    @Test
+    public void sweepShouldRemoveOnlyBucketsThatRefilledCompletely() {
+
+        limiter.tryAcquire("maria@gmail.com");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        limiter.tryAcquire("alex@gmail.com");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        int removed = limiter.sweep();
+
+        Assertions.assertEquals(1, removed);
+        Assertions.assertEquals(1, limiter.size());
+    }
+
+    @Test
+    public void tryAcquireShouldSweepFullBucketsWhenMaxKeysReached() {
+
+        limiter.tryAcquire("maria@gmail.com");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        limiter.tryAcquire("alex@gmail.com");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        Assertions.assertEquals(0L, limiter.tryAcquire("bob@gmail.com"));
+
+        Assertions.assertEquals(2, limiter.size());
+        Assertions.assertEquals(0L, limiter.getMetrics().get("evictions"));
+    }
+
+    @Test
+    public void tryAcquireShouldEvictBucketClosestToFullAndKeepLimitingNewKeyWhenMaxKeysReached() {
+
+        limiter.tryAcquire("maria@gmail.com");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("alex@gmail.com");
+        }
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(0L, limiter.tryAcquire("bob@gmail.com"));
+        }
+
+        Assertions.assertTrue(limiter.tryAcquire("bob@gmail.com") > 0L);
+        Assertions.assertTrue(limiter.tryAcquire("alex@gmail.com") > 0L);
+        Assertions.assertEquals(2, limiter.size());
+        Assertions.assertEquals(1L, limiter.getMetrics().get("evictions"));
+    }
+
+    @Test
+    public void tryAcquireShouldHandOutExactlyCapacityTokensUnderConcurrentLoad() throws Exception {
+
+        TokenBucketRateLimiter<String> shared = new TokenBucketRateLimiter<>("address", 1000, Duration.ofSeconds(1),
+                100, nanoTime::get);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                futures.add(executor.submit(() -> {
+                    int granted = 0;
+                    for (int i = 0; i < 10_000; i++) {
+                        if (shared.tryAcquire("127.0.0." + (i % 4)) == 0L) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            int granted = 0;
+            for (Future<Integer> future : futures) {
+                granted += future.get(30, TimeUnit.SECONDS);
+            }
+
+            Assertions.assertEquals(4000, granted);
+            Assertions.assertEquals(160_000L - 4000L, shared.getMetrics().get("rejected"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}